@@ -0,0 +1,247 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.Arrays;
+
+/**
+ * BitParallelMSD - a distance-only implementation of the minimum string distance statistic.
+ * <p>
+ *
+ * The <code>MSD</code> class fills the whole (s1.length()&nbsp;+&nbsp;1) by (s2.length()&nbsp;+&nbsp;1) matrix. This is
+ * necessary for the alignments, but wasteful when only the distance (or the error rate derived from it) is wanted.
+ * This class uses the bit-vector algorithm of Myers, in the block-based formulation of Hyyr&ouml;, instead. The
+ * presented text is encoded once as a set of 64-bit "match" masks (one per distinct character, and one 64-bit word per
+ * 64 characters of presented text). Each character of the transcribed text then advances a whole column of the 'D'
+ * matrix with a handful of bitwise operations, keeping only the vertical differences between neighbouring cells.
+ * <p>
+ *
+ * The values returned are identical to those of <code>MSD.getMSD()</code> and <code>MSD.getErrorRate()</code>.
+ * <p>
+ *
+ * Related references include the following:
+ * <p>
+ *
+ * <ul>
+ * <li>A fast bit-vector algorithm for approximate string matching based on dynamic programming, by Myers (<i>Journal
+ * of the ACM, 1999</i>).
+ *
+ * <li>A bit-vector algorithm for computing Levenshtein and Damerau edit distances, by Hyyr&ouml; (<i>Nordic Journal
+ * of Computing, 2003</i>).
+ * </ul>
+ * <p>
+ *
+ * Example:
+ *
+ * <pre>
+ *     int msd = BitParallelMSD.getMSD(&quot;golfers&quot;, &quot;gofpiers&quot;); // 3
+ * </pre>
+ */
+public class BitParallelMSD
+{
+	private static final int WORD_SIZE = 64;
+	private static final int ASCII_SIZE = 128;
+
+	private final int m; // length of the encoded (presented) text
+	private final int blocks; // number of 64-bit words per column
+	private final long lastBit; // the bit for row m in the last word
+
+	private final int[] asciiSymbol; // symbol index for characters < 128 (-1 = not in text)
+	private final char[] otherChars; // the remaining characters, sorted
+	private final int[] otherSymbol; // ... and their symbol indices
+	private final long[] peq; // match masks, indexed [symbol * blocks + block]
+
+	/**
+	 * Encode a string as bit-vectors. The string plays the role of the presented text in the 'D' matrix (the rows).
+	 */
+	BitParallelMSD(String s)
+	{
+		m = s.length();
+		blocks = Math.max(1, (m + WORD_SIZE - 1) / WORD_SIZE);
+		lastBit = m == 0 ? 0L : 1L << ((m - 1) % WORD_SIZE);
+
+		// assign a symbol index to each distinct character
+		asciiSymbol = new int[ASCII_SIZE];
+		Arrays.fill(asciiSymbol, -1);
+		char[] others = new char[m];
+		int symbols = 0, nOthers = 0;
+		for (int i = 0; i < m; i++)
+		{
+			char c = s.charAt(i);
+			if (c < ASCII_SIZE)
+			{
+				if (asciiSymbol[c] < 0)
+					asciiSymbol[c] = symbols++;
+			} else if (indexOf(others, nOthers, c) < 0)
+				others[nOthers++] = c;
+		}
+		otherChars = Arrays.copyOf(others, nOthers);
+		Arrays.sort(otherChars);
+		otherSymbol = new int[nOthers];
+		for (int k = 0; k < nOthers; k++)
+			otherSymbol[k] = symbols++;
+
+		// one bit per position of the presented text
+		peq = new long[symbols * blocks];
+		for (int i = 0; i < m; i++)
+			peq[symbol(s.charAt(i)) * blocks + i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+	}
+
+	private static int indexOf(char[] a, int n, char c)
+	{
+		for (int k = 0; k < n; k++)
+			if (a[k] == c)
+				return k;
+		return -1;
+	}
+
+	/*
+	 * Returns the symbol index of a character, or -1 if the character does not occur in the encoded text.
+	 */
+	int symbol(char c)
+	{
+		if (c < ASCII_SIZE)
+			return asciiSymbol[c];
+		int k = Arrays.binarySearch(otherChars, c);
+		return k < 0 ? -1 : otherSymbol[k];
+	}
+
+	/**
+	 * Returns the length of the encoded text.
+	 */
+	int length()
+	{
+		return m;
+	}
+
+	/**
+	 * Returns the minimum string distance between the encoded text and the given text.
+	 */
+	int distance(CharSequence t)
+	{
+		int n = t.length();
+		if (m == 0)
+			return n;
+		if (n == 0)
+			return m;
+		return blocks == 1 ? distanceOneWord(t, n) : distanceBlocks(t, n);
+	}
+
+	/*
+	 * The common case: the presented text fits in a single 64-bit word. No allocation.
+	 */
+	private int distanceOneWord(CharSequence t, int n)
+	{
+		long pv = -1L; // vertical positive deltas (D[i][0] = i)
+		long mv = 0L; // vertical negative deltas
+		int score = m;
+
+		for (int j = 0; j < n; j++)
+		{
+			int sym = symbol(t.charAt(j));
+			long eq = sym < 0 ? 0L : peq[sym];
+
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+
+			if ((ph & lastBit) != 0)
+				++score;
+			else if ((mh & lastBit) != 0)
+				--score;
+
+			// the top row increases by one per column (D[0][j] = j)
+			ph = (ph << 1) | 1L;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		return score;
+	}
+
+	/*
+	 * The general case: the column is split into 64-bit words, and the horizontal delta leaving the top of one word is
+	 * carried into the bottom of the next.
+	 */
+	private int distanceBlocks(CharSequence t, int n)
+	{
+		long[] pvs = new long[blocks];
+		long[] mvs = new long[blocks];
+		Arrays.fill(pvs, -1L);
+		int score = m;
+		int last = blocks - 1;
+
+		for (int j = 0; j < n; j++)
+		{
+			int sym = symbol(t.charAt(j));
+			int base = sym * blocks;
+			int hin = 1; // the top row increases by one per column
+
+			for (int b = 0; b < blocks; b++)
+			{
+				long eq = sym < 0 ? 0L : peq[base + b];
+				long pv = pvs[b];
+				long mv = mvs[b];
+
+				long xv = eq | mv;
+				if (hin < 0)
+					eq |= 1L;
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+
+				long outBit = b == last ? lastBit : Long.MIN_VALUE;
+				int hout = (ph & outBit) != 0 ? 1 : (mh & outBit) != 0 ? -1 : 0;
+
+				ph <<= 1;
+				mh <<= 1;
+				if (hin < 0)
+					mh |= 1L;
+				else if (hin > 0)
+					ph |= 1L;
+				pvs[b] = mh | ~(xv | ph);
+				mvs[b] = ph & xv;
+
+				hin = hout;
+			}
+			score += hin;
+		}
+		return score;
+	}
+
+	/**
+	 * Return an integer equal to the minimum distance between two strings.
+	 * <p>
+	 *
+	 * The result is the same as <code>new MSD(s1, s2).getMSD()</code>, but no matrix is built.
+	 *
+	 * @param s1
+	 *            the 1st text string (the "presented" text)
+	 * @param s2
+	 *            the 2nd text string (the "transcribed" text)
+	 * @return an <code>int</code> equal to the minimum string distance.
+	 */
+	public static int getMSD(String s1, String s2)
+	{
+		if (s1.length() == 0)
+			return s2.length();
+		if (s2.length() == 0)
+			return s1.length();
+		return new BitParallelMSD(s1).distance(s2);
+	}
+
+	/**
+	 * Return a double equal to the text entry error rate (%).
+	 * <p>
+	 *
+	 * The result is the same as <code>new MSD(s1, s2).getErrorRate()</code>.
+	 *
+	 * @param s1
+	 *            the 1st text string (the "presented" text)
+	 * @param s2
+	 *            the 2nd text string (the "transcribed" text)
+	 */
+	public static double getErrorRate(String s1, String s2)
+	{
+		return (double) getMSD(s1, s2) / Math.max(s1.length(), s2.length()) * 100.0;
+	}
+}
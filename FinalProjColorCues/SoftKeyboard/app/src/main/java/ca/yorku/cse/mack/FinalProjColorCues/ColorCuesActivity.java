@@ -22,8 +22,11 @@ import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -40,7 +43,12 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
     private final static String APP = "SoftKeyboard";
     private final static String DATA_DIRECTORY = "/SoftKeyboardData/";
     private final static String SD2_HEADER = "App,Participant,Session,Block,Group,Condition,Layout,Scale,"
-            + "Keystrokes,Characters,Time(s),Speed(wpm),ErrorRate(%),KSPC\n";
+            + "Keystrokes,Characters,Time(s),Speed(wpm),ErrorRate(%),KSPC,"
+            + "TotalErrorRate(%),CorrectedErrorRate(%),UtilizedBandwidth(%)\n";
+    private final static int MSD_CACHE_SIZE = 100; // phrase pairs
+    private final static String[] SD2_LEADER_FIELDS = {"App", "Participant", "Session", "Block", "Group",
+            "Condition", "Layout", "Scale"};
+    private final static String[] STATS_MEASURES = {"Speed(wpm)", "ErrorRate(%)", "KSPC"};
 
     private int numberOfPhrases;
     private boolean lowercaseOnly, showPresentedTextDuringEntry;
@@ -51,6 +59,10 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
     private boolean endOfPhrase, firstKeystrokeInPhrase;
     private StringBuilder transcribedBuffer;
     private String presentedBuffer;
+    private IncrementalMSD liveMSD; // MSD of presented vs. transcribed, updated on each keystroke
+    private MSDCache msdCache; // scores of phrases not covered by liveMSD
+    private InputStreamErrors inputStream; // errors made and corrected during entry (IF and F)
+    private ConditionStats stats; // running statistics of the phrases entered, by sd2Leader
     private TextView presentedText;
     private EditText transcribedText;
     private Random r = new Random();
@@ -59,7 +71,7 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
     private long timeStartOfPhrase;
     private String[] phrases;
     private BufferedWriter sd1, sd2;
-    private File f1, f2;
+    private File f1, f2, f3;
     private String sd2Leader; // sd2Leader to identify conditions for data written to sd2 files.
 
     // compute typing speed in wpm, given text entered and time in ms
@@ -171,6 +183,7 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
                     sessionCode, keyboardLayout);
             f1 = new File(dataDirectory, baseFilename + ".sd1");
             f2 = new File(dataDirectory, baseFilename + ".sd2");
+            f3 = new File(dataDirectory, baseFilename + ".sds"); // statistics snapshot
 
             // also make a comma-delimited leader that will begin each data line written to the sd2 file
             sd2Leader = String.format("%s,%s,%s,%s,%s,%s,%s,%s", APP, participantCode, sessionCode, blockCode, keyboardLayout);
@@ -195,6 +208,10 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
 
         // initialized a buffer to hold the user's input
         transcribedBuffer = new StringBuilder();
+        liveMSD = new IncrementalMSD();
+        msdCache = new MSDCache(MSD_CACHE_SIZE);
+        inputStream = new InputStreamErrors();
+        stats = new ConditionStats(SD2_LEADER_FIELDS, STATS_MEASURES);
 
         // give focus transcribed text field so flashing I-beam appears
         transcribedText.requestFocus();
@@ -243,12 +260,18 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
 
             case KeyboardEvent.TYPE_BACKSPACE:
                 if (transcribedBuffer.length() > 0)
+                {
                     transcribedBuffer.delete(transcribedBuffer.length() - 1, transcribedBuffer.length
                             ());
+                    liveMSD.deleteLast();
+                }
+                inputStream.deleteLast();
                 break;
 
             default: // just a character
                 transcribedBuffer.append((char)ke.charCode);
+                liveMSD.append((char)ke.charCode);
+                inputStream.append((char)ke.charCode);
         }
 
         ++keystrokeCount;
@@ -275,7 +298,8 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
                 firstKeystrokeInPhrase = false;
             }
             elapsedTimeForPhrase = ke.timeStampFingerUp - timeStartOfPhrase;
-            samples.add(new Sample(elapsedTimeForPhrase, ke.raw));
+            samples.add(new Sample(elapsedTimeForPhrase, ke.raw, ke.xFingerUp, ke.yFingerUp,
+                    ke.timeStampFingerDown - timeStartOfPhrase));
         }
     }
 
@@ -286,6 +310,8 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
         presentedText.setText(presentedBuffer);
         transcribedBuffer.setLength(0);
         transcribedText.setText(transcribedBuffer);
+        liveMSD.reset(presentedBuffer.toLowerCase(Locale.getDefault()).trim());
+        inputStream.reset();
 
         keystrokeCount = 0;
         samples.clear();
@@ -324,19 +350,56 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
 
         // output speed in words per minute
         d = wpm(transcribedPhrase, elapsedTimeForPhrase);
+        float speed = d;
         resultsString += String.format(Locale.CANADA, "Entry speed: %.2f wpm\n", d);
         sd2Data.append(String.format(Locale.CANADA, "%f,", d));
 
         // output error rate for transcribed text
         // MSD2 s1s2 = new MSD2(presentedPhrase, transcribedPhraseUncorrected);
-        MSD s1s2 = new MSD(presentedPhrase, transcribedPhrase);
-        d = (float)s1s2.getErrorRateNew();
+        // (the live MSD is already up to date, unless lowercasing or trimming changed the transcribed text)
+        int msd;
+        if (liveMSD.matches(presentedPhrase, transcribedPhrase))
+        {
+            d = (float)liveMSD.getErrorRateNew();
+            msd = liveMSD.getMSD();
+        } else
+        {
+            d = (float)msdCache.getErrorRateNew(presentedPhrase, transcribedPhrase);
+            msd = msdCache.getMSD(presentedPhrase, transcribedPhrase);
+        }
         resultsString += String.format(Locale.CANADA, "Error rate: %.2f%%\n", d);
+        float errorRate = d;
         sd2Data.append(String.format(Locale.CANADA, "%f,", d));
 
         // output KSPC (keystrokes per character)
         d = (float)keystrokeCount / transcribedPhrase.length();
-        resultsString += String.format(Locale.CANADA, "KSPC: %.4f\n\n", d);
+        float kspc = transcribedPhrase.length() > 0 ? d : Float.NaN; // no KSPC for an empty transcription
+        resultsString += String.format(Locale.CANADA, "KSPC: %.4f\n", d);
+        sd2Data.append(String.format(Locale.CANADA, "%f,", d));
+
+        // output the input-stream error rates (errors corrected during entry included)
+        InputStreamErrors.Counts counts = inputStream.getCounts(presentedPhrase.length(),
+                transcribedPhrase.length(), msd);
+        d = (float)counts.getTotalErrorRate();
+        resultsString += String.format(Locale.CANADA, "Total error rate: %.2f%%\n", d);
+        sd2Data.append(String.format(Locale.CANADA, "%f,", d));
+        d = (float)counts.getCorrectedErrorRate();
+        resultsString += String.format(Locale.CANADA, "Corrected error rate: %.2f%%\n", d);
+        sd2Data.append(String.format(Locale.CANADA, "%f,", d));
+        d = (float)counts.getUtilizedBandwidth();
+        resultsString += String.format(Locale.CANADA, "Utilized bandwidth: %.2f%%\n\n", d);
+
+        // update the running statistics of this block, and show them
+        stats.add(sd2Leader, speed, errorRate, kspc);
+        RunningStats blockSpeed = stats.get(sd2Leader, 0);
+        RunningStats blockErrorRate = stats.get(sd2Leader, 1);
+        resultsString += String.format(Locale.CANADA, "Block so far (%d phrases)...\n", blockSpeed.getCount());
+        resultsString += String.format(Locale.CANADA, "   %.2f wpm, %.2f%% errors\n", blockSpeed.getMean(),
+                blockErrorRate.getMean());
+        if (blockSpeed.getCount() > 1)
+            resultsString += String.format(Locale.CANADA, "   95%% CI: \u00b1%.2f wpm, \u00b1%.2f%%\n",
+                    blockSpeed.getConfidenceHalfWidth(), blockErrorRate.getConfidenceHalfWidth());
+        resultsString += "\n";
         resultsString += "Click OK to continue";
         sd2Data.append(String.format(Locale.CANADA, "%f\n", d)); // end of line too!
 
@@ -411,6 +474,16 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
             sd1.close();
             sd2.close();
 
+            // save a snapshot of the block's statistics (see ConditionStats.read())
+            DataOutputStream sds = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f3)));
+            try
+            {
+                stats.write(sds);
+            } finally
+            {
+                sds.close();
+            }
+
 			/*
              * Make the saved data files visible in Windows Explorer. There seems to be bug doing
 			 * this with Android 4.4. I'm using the following code, instead of sendBroadcast.
@@ -419,7 +492,7 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
 			 * http://code.google.com/p/android/issues/detail?id=38282
 			 */
             MediaScannerConnection.scanFile(this, new String[] {f1.getAbsolutePath(), f2
-                            .getAbsolutePath()}, null,
+                            .getAbsolutePath(), f3.getAbsolutePath()}, null,
                     null);
 
         } catch (IOException e)
@@ -433,23 +506,32 @@ public class ColorCuesActivity extends Activity implements OnKeystrokeListener
         this.finish();
     }
 
-    // -------------------------------------------------------
-    // Sample - simple class to hold a timestamp and keystroke
-    // -------------------------------------------------------
+    // -------------------------------------------------------------------------
+    // Sample - simple class to hold a timestamp, keystroke, lift-off point (in
+    // baseline key widths; see KeyboardPanel) and finger-down time, all times
+    // from the start of the phrase (see FittsAnalyzer)
+    // -------------------------------------------------------------------------
     private class Sample
     {
         private long time;
         private String key;
+        private float x, y;
+        private long timeDown;
 
-        Sample(long timeArg, String keyArg)
+        Sample(long timeArg, String keyArg, float xArg, float yArg, long timeDownArg)
         {
             time = timeArg;
             key = keyArg;
+            x = xArg;
+            y = yArg;
+            timeDown = timeDownArg;
         }
 
         public String toString()
         {
-            return time + ", " + key;
+            if (Float.isNaN(x))
+                return time + ", " + key;
+            return String.format(Locale.CANADA, "%d, %s, %.3f, %.3f, %d", time, key, x, y, timeDown);
         }
     }
 }
\ No newline at end of file
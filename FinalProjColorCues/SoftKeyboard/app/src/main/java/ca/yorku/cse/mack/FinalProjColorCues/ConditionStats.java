@@ -0,0 +1,254 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ConditionStats - running statistics of several measures (e.g., entry speed, error rate, KSPC), for each condition of
+ * a study.
+ * <p>
+ *
+ * A condition is identified by the values of some fields, joined by commas, as in the leader of an sd2 line
+ * ("SoftKeyboard,P01,S01,B01,..."). Each phrase adds one value of each measure to its condition (see
+ * <code>RunningStats</code>), so the mean, standard deviation, range and 95% confidence interval are always up to
+ * date, with nothing re-read.
+ * <p>
+ *
+ * Coarser summaries come from the same statistics: <code>summarize("Participant", "Layout")</code> merges the
+ * conditions that agree on those fields (so all of a participant's blocks and sessions on a layout become one
+ * condition). Statistics gathered separately (on several threads, or devices) are combined with <code>merge()</code>,
+ * and saved and restored with <code>write()</code> and <code>read()</code>. Example:
+ *
+ * <pre>
+ *     ConditionStats stats = new ConditionStats(new String[] { &quot;Participant&quot;, &quot;Layout&quot; },
+ *             new String[] { &quot;Speed(wpm)&quot;, &quot;ErrorRate(%)&quot; });
+ *     stats.add(&quot;P01,Qwerty&quot;, 23.5, 2.1);
+ *     double meanSpeed = stats.get(&quot;P01,Qwerty&quot;, 0).getMean();
+ * </pre>
+ */
+public class ConditionStats
+{
+	private static final int MAGIC = 0x43535431; // "CST1"
+
+	private final String[] fields;
+	private final String[] measures;
+	private final TreeMap<String, RunningStats[]> conditions = new TreeMap<String, RunningStats[]>();
+
+	/**
+	 * Create empty statistics.
+	 *
+	 * @param fieldsArg
+	 *            the names of the fields that identify a condition
+	 * @param measuresArg
+	 *            the names of the measures
+	 */
+	public ConditionStats(String[] fieldsArg, String[] measuresArg)
+	{
+		fields = fieldsArg.clone();
+		measures = measuresArg.clone();
+	}
+
+	/**
+	 * Returns the names of the fields that identify a condition.
+	 */
+	public String[] getFields()
+	{
+		return fields.clone();
+	}
+
+	/**
+	 * Returns the names of the measures.
+	 */
+	public String[] getMeasures()
+	{
+		return measures.clone();
+	}
+
+	private RunningStats[] statsFor(String condition)
+	{
+		RunningStats[] s = conditions.get(condition);
+		if (s == null)
+		{
+			s = new RunningStats[measures.length];
+			for (int m = 0; m < s.length; m++)
+				s[m] = new RunningStats();
+			conditions.put(condition, s);
+		}
+		return s;
+	}
+
+	/**
+	 * Add one value of each measure (e.g., one phrase) to a condition. A value that is NaN (e.g., the KSPC of an empty
+	 * transcription) is left out.
+	 *
+	 * @param condition
+	 *            the values of the fields, separated by commas
+	 * @param values
+	 *            one value per measure
+	 */
+	public void add(String condition, double... values)
+	{
+		if (values.length != measures.length)
+			throw new IllegalArgumentException("expected " + measures.length + " values, not " + values.length);
+		RunningStats[] s = statsFor(condition);
+		for (int m = 0; m < values.length; m++)
+			if (!Double.isNaN(values[m]))
+				s[m].add(values[m]);
+	}
+
+	/**
+	 * Returns the statistics of one measure of a condition (empty if the condition has not been seen).
+	 */
+	public RunningStats get(String condition, int measure)
+	{
+		RunningStats[] s = conditions.get(condition);
+		return s != null ? s[measure] : new RunningStats();
+	}
+
+	/**
+	 * Returns the conditions seen, in order.
+	 */
+	public List<String> getConditions()
+	{
+		return new ArrayList<String>(conditions.keySet());
+	}
+
+	/**
+	 * Add the statistics of another ConditionStats, with the same fields and measures, to this one.
+	 */
+	public void merge(ConditionStats other)
+	{
+		if (!Arrays.equals(fields, other.fields) || !Arrays.equals(measures, other.measures))
+			throw new IllegalArgumentException("the fields or measures differ");
+		for (Map.Entry<String, RunningStats[]> e : other.conditions.entrySet())
+		{
+			RunningStats[] s = statsFor(e.getKey());
+			for (int m = 0; m < s.length; m++)
+				s[m].merge(e.getValue()[m]);
+		}
+	}
+
+	/**
+	 * Returns coarser statistics, identified by some of the fields only. The conditions that have the same values of
+	 * those fields are merged.
+	 *
+	 * @param keep
+	 *            the names of the fields to keep
+	 */
+	public ConditionStats summarize(String... keep)
+	{
+		int[] index = new int[keep.length];
+		for (int k = 0; k < keep.length; k++)
+		{
+			index[k] = Arrays.asList(fields).indexOf(keep[k]);
+			if (index[k] < 0)
+				throw new IllegalArgumentException("no field " + keep[k]);
+		}
+
+		ConditionStats summary = new ConditionStats(keep, measures);
+		for (Map.Entry<String, RunningStats[]> e : conditions.entrySet())
+		{
+			String[] values = e.getKey().split(",", -1);
+			StringBuilder condition = new StringBuilder();
+			for (int k = 0; k < index.length; k++)
+			{
+				if (k > 0)
+					condition.append(',');
+				condition.append(index[k] < values.length ? values[index[k]] : "");
+			}
+			RunningStats[] s = summary.statsFor(condition.toString());
+			for (int m = 0; m < s.length; m++)
+				s[m].merge(e.getValue()[m]);
+		}
+		return summary;
+	}
+
+	/**
+	 * Print the statistics as comma-separated values: the fields, then the count, mean, standard deviation, minimum,
+	 * maximum and 95% confidence half-width of each measure.
+	 */
+	public void print(PrintStream out)
+	{
+		StringBuilder header = new StringBuilder();
+		for (String f : fields)
+			header.append(f).append(',');
+		for (int m = 0; m < measures.length; m++)
+		{
+			String name = measures[m];
+			header.append(m > 0 ? "," : "").append(name).append(" N,").append(name).append(" Mean,").append(name)
+					.append(" SD,").append(name).append(" Min,").append(name).append(" Max,").append(name)
+					.append(" CI95");
+		}
+		out.println(header);
+
+		for (Map.Entry<String, RunningStats[]> e : conditions.entrySet())
+		{
+			StringBuilder line = new StringBuilder(e.getKey());
+			for (RunningStats s : e.getValue())
+				line.append(String.format(Locale.CANADA, ",%d,%f,%f,%f,%f,%f", s.getCount(), s.getMean(),
+						s.getStandardDeviation(), s.getMin(), s.getMax(), s.getConfidenceHalfWidth()));
+			out.println(line);
+		}
+	}
+
+	/**
+	 * Write a snapshot of the statistics: the fields and measures, then each condition and its statistics.
+	 */
+	public void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		writeStrings(out, fields);
+		writeStrings(out, measures);
+		out.writeInt(conditions.size());
+		for (Map.Entry<String, RunningStats[]> e : conditions.entrySet())
+		{
+			out.writeUTF(e.getKey());
+			for (RunningStats s : e.getValue())
+				s.write(out);
+		}
+	}
+
+	/**
+	 * Read a snapshot written by <code>write()</code>.
+	 */
+	public static ConditionStats read(DataInputStream in) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+			throw new IOException("not a statistics snapshot");
+		ConditionStats stats = new ConditionStats(readStrings(in), readStrings(in));
+		int n = in.readInt();
+		for (int c = 0; c < n; c++)
+		{
+			RunningStats[] s = stats.statsFor(in.readUTF());
+			for (int m = 0; m < s.length; m++)
+				s[m] = RunningStats.read(in);
+		}
+		return stats;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] s) throws IOException
+	{
+		out.writeInt(s.length);
+		for (String x : s)
+			out.writeUTF(x);
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException
+	{
+		int n = in.readInt();
+		if (n < 0)
+			throw new IOException("bad count: " + n);
+		String[] s = new String[n];
+		for (int i = 0; i < n; i++)
+			s[i] = in.readUTF();
+		return s;
+	}
+}
@@ -0,0 +1,342 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ErrorMatrix - a character confusion matrix, built from the optimal alignments of presented and transcribed texts.
+ * <p>
+ *
+ * Each entry counts how often a presented character was aligned with a transcribed character by one kind of step:
+ * correct ('c'), substitution ('x'), insertion ('i', no presented character), deletion ('d', no transcribed character)
+ * or transposition ('t', one entry for each of the two characters). A pair of texts with several optimal alignments
+ * contributes each alignment with weight 1 / (number of alignments), so every pair of texts adds the same total weight
+ * to each character. The weights are the expected counts of <code>MSD2.getExpectedOperationCounts()</code>, so all
+ * of the optimal alignments are included, not just the sample of <code>MSD2.getAlignmentVector()</code>.
+ * <p>
+ *
+ * The entries are kept in a primitive hash table, keyed by (step, presented character, transcribed character), so
+ * only the pairs that occur take space. Matrices built separately (e.g., on several threads, or from several studies)
+ * are combined with <code>merge()</code>, in any order, and can be saved with <code>write()</code> and restored with
+ * <code>read()</code>. Example:
+ *
+ * <pre>
+ *     ErrorMatrix m = ErrorMatrix.build(presented, transcribed, true);
+ *     double eForA = m.get('x', 'e', 'a'); // expected number of times 'e' was entered as 'a'
+ * </pre>
+ */
+public class ErrorMatrix
+{
+	/**
+	 * The character of an insertion's presented side, or a deletion's transcribed side.
+	 */
+	public static final int NONE = -1;
+
+	private static final String OPS = "cxidt";
+	private static final int MAGIC = 0x45524d31; // "ERM1"
+	private static final int INITIAL_CAPACITY = 64; // a power of two
+	private static final int CHUNK_SIZE = 32;
+
+	// open addressing; a key of 0 marks an empty slot (every real key has a step code of 1 or more)
+	private long[] keys;
+	private double[] weights;
+	private int size;
+
+	/**
+	 * Create an empty matrix.
+	 */
+	public ErrorMatrix()
+	{
+		keys = new long[INITIAL_CAPACITY];
+		weights = new double[INITIAL_CAPACITY];
+	}
+
+	/*
+	 * (step code, presented + 1, transcribed + 1), in 3 + 21 + 21 bits.
+	 */
+	private static long key(char op, int presented, int transcribed)
+	{
+		int code = OPS.indexOf(op) + 1;
+		if (code == 0)
+			throw new IllegalArgumentException("unknown operation: " + op);
+		return (long)code << 42 | (long)(presented + 1) << 21 | (transcribed + 1);
+	}
+
+	private static int slot(long key, int mask)
+	{
+		long h = key * 0x9e3779b97f4a7c15L;
+		return (int)(h >>> 40) & mask;
+	}
+
+	private void addKey(long key, double w)
+	{
+		int mask = keys.length - 1;
+		int s = slot(key, mask);
+		while (keys[s] != 0 && keys[s] != key)
+			s = (s + 1) & mask;
+		if (keys[s] == 0)
+		{
+			keys[s] = key;
+			if (++size * 2 > keys.length)
+			{
+				weights[s] = w;
+				grow();
+				return;
+			}
+		}
+		weights[s] += w;
+	}
+
+	private void grow()
+	{
+		long[] oldKeys = keys;
+		double[] oldWeights = weights;
+		keys = new long[2 * oldKeys.length];
+		weights = new double[2 * oldKeys.length];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != 0)
+			{
+				int s = slot(oldKeys[i], mask);
+				while (keys[s] != 0)
+					s = (s + 1) & mask;
+				keys[s] = oldKeys[i];
+				weights[s] = oldWeights[i];
+			}
+	}
+
+	/**
+	 * Add weight to an entry.
+	 *
+	 * @param op
+	 *            the step, one of c, x, i, d or t
+	 * @param presented
+	 *            the presented character (a code point), or <code>NONE</code>
+	 * @param transcribed
+	 *            the transcribed character (a code point), or <code>NONE</code>
+	 * @param w
+	 *            the weight
+	 */
+	public void add(char op, int presented, int transcribed, double w)
+	{
+		addKey(key(op, presented, transcribed), w);
+	}
+
+	/**
+	 * Add the optimal alignments of a character-level MSD2 object (a <code>TwoStringCollection</code> or a
+	 * <code>CodePointCollection</code>), each weighted 1 / (number of alignments).
+	 */
+	public void add(final MSD2 m)
+	{
+		// the tokens of both collections are the characters themselves
+		final int[] pt = m.PT, tt = m.TT;
+		m.expectedSteps(new MSD2.StepSink()
+		{
+			public void step(char op, int p, int t, double w)
+			{
+				int pc = p < 0 ? NONE : pt != null ? pt[p] : m.getPresentedItem(p).codePointAt(0);
+				int tc = t < 0 ? NONE : tt != null ? tt[t] : m.getTranscribedItem(t).codePointAt(0);
+				add(op, pc, tc, w);
+			}
+		});
+	}
+
+	/**
+	 * Add the optimal alignments of a presented and a transcribed text. Only the 'D' matrix is computed (in the calling
+	 * thread's <code>MSD2</code> workspace), not the alignments themselves.
+	 *
+	 * @param transpositions
+	 *            true if a transposition of neighbouring characters is one error
+	 */
+	public void add(String presented, String transcribed, boolean transpositions)
+	{
+		add(MSD2.forThread().resetMatrix(new MSD2.CodePointCollection(presented, transcribed, transpositions)));
+	}
+
+	/**
+	 * Add the entries of another matrix to this one. Merging is associative and commutative (apart from rounding), so
+	 * partial matrices may be merged in any order.
+	 */
+	public void merge(ErrorMatrix other)
+	{
+		for (int i = 0; i < other.keys.length; i++)
+			if (other.keys[i] != 0)
+				addKey(other.keys[i], other.weights[i]);
+	}
+
+	/**
+	 * Returns the weight of an entry (0 if it has none).
+	 */
+	public double get(char op, int presented, int transcribed)
+	{
+		long key = key(op, presented, transcribed);
+		int mask = keys.length - 1;
+		for (int s = slot(key, mask); keys[s] != 0; s = (s + 1) & mask)
+			if (keys[s] == key)
+				return weights[s];
+		return 0.0;
+	}
+
+	/**
+	 * Returns the total weight of the entries of one step (e.g., the expected number of substitutions).
+	 */
+	public double getTotal(char op)
+	{
+		int code = OPS.indexOf(op) + 1;
+		if (code == 0)
+			throw new IllegalArgumentException("unknown operation: " + op);
+		double total = 0.0;
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != 0 && (int)(keys[i] >>> 42) == code)
+				total += weights[i];
+		return total;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Print the entries as comma-separated values (step, presented, transcribed, weight), sorted by step and
+	 * characters. A missing character is printed as "-".
+	 */
+	public void print(PrintStream out)
+	{
+		long[] sorted = new long[size];
+		int n = 0;
+		for (long k : keys)
+			if (k != 0)
+				sorted[n++] = k;
+		Arrays.sort(sorted);
+
+		out.println("Step,Presented,Transcribed,Weight");
+		for (long k : sorted)
+		{
+			char op = OPS.charAt((int)(k >>> 42) - 1);
+			int p = (int)(k >>> 21 & 0x1fffff) - 1, t = (int)(k & 0x1fffff) - 1;
+			out.println(String.format(Locale.CANADA, "%c,%s,%s,%f", op, text(p), text(t), get(op, p, t)));
+		}
+	}
+
+	private static String text(int c)
+	{
+		if (c == NONE)
+			return "-";
+		if (c == ',' || c == ' ')
+			return "'" + (char)c + "'";
+		return new String(Character.toChars(c));
+	}
+
+	/**
+	 * Write the matrix in a compact binary form: the number of entries, then each entry's packed key and weight.
+	 */
+	public void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(size);
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != 0)
+			{
+				out.writeLong(keys[i]);
+				out.writeDouble(weights[i]);
+			}
+	}
+
+	/**
+	 * Read a matrix written by <code>write()</code>.
+	 */
+	public static ErrorMatrix read(DataInputStream in) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+			throw new IOException("not an error matrix");
+		int n = in.readInt();
+		if (n < 0)
+			throw new IOException("bad entry count: " + n);
+		ErrorMatrix m = new ErrorMatrix();
+		for (int k = 0; k < n; k++)
+		{
+			long key = in.readLong();
+			if (key == 0 || (key >>> 42) > OPS.length())
+				throw new IOException("bad entry: " + Long.toHexString(key));
+			m.addKey(key, in.readDouble());
+		}
+		return m;
+	}
+
+	//------------------------------------------------------------------
+	// building a matrix from many pairs of texts, on several threads
+	//------------------------------------------------------------------
+
+	/**
+	 * Build the matrix of a list of pairs. <code>s1</code> of each pair is the presented text, and <code>s2</code> the
+	 * transcribed text.
+	 */
+	public static ErrorMatrix build(List<StringPair> pairs, boolean transpositions)
+	{
+		String[] p = new String[pairs.size()];
+		String[] t = new String[pairs.size()];
+		int k = 0;
+		for (StringPair sp : pairs)
+		{
+			p[k] = sp.s1;
+			t[k] = sp.s2;
+			++k;
+		}
+		return build(p, t, transpositions);
+	}
+
+	/**
+	 * Build the matrix of the pairs (<code>presented[k]</code>, <code>transcribed[k]</code>). The pairs are divided
+	 * among the threads of <code>MSDThreads</code> (as in <code>MSDBatch</code>); each thread builds a partial matrix,
+	 * and the partial matrices are merged.
+	 */
+	public static ErrorMatrix build(final String[] presented, final String[] transcribed, final boolean transpositions)
+	{
+		if (presented.length != transcribed.length)
+			throw new IllegalArgumentException("presented and transcribed differ in length: " + presented.length
+					+ " vs " + transcribed.length);
+
+		final AtomicInteger nextChunk = new AtomicInteger();
+		final List<ErrorMatrix> partials = new ArrayList<ErrorMatrix>();
+		MSDThreads.run((presented.length + CHUNK_SIZE - 1) / CHUNK_SIZE, new Runnable()
+		{
+			public void run()
+			{
+				ErrorMatrix m = new ErrorMatrix();
+				synchronized (partials)
+				{
+					partials.add(m);
+				}
+				int chunk;
+				while ((chunk = nextChunk.getAndIncrement()) * CHUNK_SIZE < presented.length)
+				{
+					int from = chunk * CHUNK_SIZE;
+					m.addRange(presented, transcribed, transpositions, from, Math.min(presented.length, from
+							+ CHUNK_SIZE));
+				}
+			}
+		});
+
+		ErrorMatrix result = partials.get(0);
+		for (int p = 1; p < partials.size(); p++)
+			result.merge(partials.get(p));
+		return result;
+	}
+
+	private void addRange(String[] presented, String[] transcribed, boolean transpositions, int from, int to)
+	{
+		for (int k = from; k < to; k++)
+			add(presented[k], transcribed[k], transpositions);
+	}
+}
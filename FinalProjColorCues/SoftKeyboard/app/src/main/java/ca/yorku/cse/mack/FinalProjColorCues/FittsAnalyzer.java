@@ -0,0 +1,365 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * FittsAnalyzer - the Fitts' throughput of each participant on each layout, from the keystrokes of the sd1 files.
+ * <p>
+ *
+ * Each keystroke in an sd1 file is "time, key, x, y, down": the time the finger left the key (ms from the first
+ * keystroke of the phrase, from <code>KeyboardEvent.timeStampFingerUp</code>), the key, where the finger left the
+ * keyboard (in baseline key widths; see <code>KeyboardPanel</code>), and the time the finger touched the keyboard
+ * (from <code>KeyboardEvent.timeStampFingerDown</code>). Each keystroke that enters a character, after another
+ * keystroke of the same phrase, is a movement:
+ * <p>
+ *
+ * <ul>
+ * <li>the target is the key of the character the participant should have entered (the next character of the presented
+ * phrase, found by replaying the keystrokes, BACKSPACE included), on the layout resource of the block
+ *
+ * <li>the movement starts where the previous keystroke ended, and its axis runs from there to the centre of the target
+ *
+ * <li>the movement time runs from the previous lift-off to this touch-down, so it leaves out the time the finger rests
+ * on the key
+ *
+ * <li>the endpoint is the lift-off point, where <code>KeyboardPanel</code> chooses the key
+ * </ul>
+ * <p>
+ *
+ * For each participant, layout and target key, the deviation of the endpoint from the centre of the key along the
+ * axis, the effective distance (the distance to the centre plus the deviation) and the movement time are accumulated
+ * in a few primitive arrays indexed by key (see <code>KeyStats</code>). The effective width of a key is 4.133 times
+ * the standard deviation of its deviations, its effective index of difficulty is IDe = log2(De / We + 1), and its
+ * throughput is IDe / MT. The throughput of a participant on a layout is the mean over the keys with at least two
+ * movements. Related reference:
+ * <p>
+ *
+ * <ul>
+ * <li>Towards a standard for pointing device evaluation, perspectives on 27 years of Fitts' law research in HCI, by
+ * Soukoreff and MacKenzie (<i>International Journal of Human-Computer Studies, 2004</i>).
+ * </ul>
+ * <p>
+ *
+ * The file name gives the participant (the field that starts with "P") and the layout (the last field, matched to a
+ * layout name regardless of case); when only one layout is loaded, it is used for every file. Keystrokes without a
+ * point and a touch-down time (sd1 files written before they were recorded) are not movements. The files are analysed
+ * on all cores (see <code>StudyFiles.analyse()</code>) and read a line at a time. Usage:
+ *
+ * <pre>
+ *     java FittsAnalyzer -layout res/values/qwerty.xml [-layout ...] dir ...
+ * </pre>
+ */
+public class FittsAnalyzer implements StudyFiles.Analysis<Map<String, FittsAnalyzer.KeyStats>>
+{
+	private static final String END_OF_PHRASE = "-----";
+
+	/**
+	 * The effective width is this multiple of the standard deviation of the endpoints (sqrt(2 pi e)).
+	 */
+	public static final double EFFECTIVE_WIDTH_FACTOR = 4.133;
+
+	/**
+	 * The movements of one participant on one layout, by target key: the count, the mean and sum of squared deviations
+	 * of the endpoint along the axis (Welford's method, as in <code>RunningStats</code>), and the sums of the effective
+	 * distance and movement time.
+	 */
+	static final class KeyStats
+	{
+		final KeyboardLayout layout;
+		final long[] n;
+		final double[] mean, m2, distance, time;
+
+		KeyStats(KeyboardLayout layoutArg)
+		{
+			layout = layoutArg;
+			int keys = layout.getKeyCount();
+			n = new long[keys];
+			mean = new double[keys];
+			m2 = new double[keys];
+			distance = new double[keys];
+			time = new double[keys];
+		}
+
+		/**
+		 * Add a movement to a key.
+		 *
+		 * @param deviation
+		 *            the distance of the endpoint beyond the centre of the key, along the axis
+		 * @param effectiveDistance
+		 *            the distance from the start to the endpoint, along the axis
+		 * @param movementTime
+		 *            the movement time, in ms
+		 */
+		void add(int key, double deviation, double effectiveDistance, double movementTime)
+		{
+			long count = ++n[key];
+			double delta = deviation - mean[key];
+			mean[key] += delta / count;
+			m2[key] += delta * (deviation - mean[key]);
+			distance[key] += effectiveDistance;
+			time[key] += movementTime;
+		}
+
+		/**
+		 * Add the movements of another KeyStats, of the same layout, to this one.
+		 */
+		void merge(KeyStats other)
+		{
+			for (int k = 0; k < n.length; k++)
+			{
+				if (other.n[k] == 0)
+					continue;
+				long total = n[k] + other.n[k];
+				double delta = other.mean[k] - mean[k];
+				mean[k] += delta * other.n[k] / total;
+				m2[k] += other.m2[k] + delta * delta * ((double)n[k] * other.n[k] / total);
+				distance[k] += other.distance[k];
+				time[k] += other.time[k];
+				n[k] = total;
+			}
+		}
+
+		/**
+		 * Returns the effective width of a key, in baseline key widths (NaN if it has fewer than two movements).
+		 */
+		double getEffectiveWidth(int key)
+		{
+			return n[key] > 1 ? EFFECTIVE_WIDTH_FACTOR * Math.sqrt(m2[key] / (n[key] - 1)) : Double.NaN;
+		}
+
+		/**
+		 * Returns the mean effective distance to a key, in baseline key widths.
+		 */
+		double getEffectiveDistance(int key)
+		{
+			return n[key] > 0 ? distance[key] / n[key] : Double.NaN;
+		}
+
+		/**
+		 * Returns the mean movement time to a key, in ms.
+		 */
+		double getMovementTime(int key)
+		{
+			return n[key] > 0 ? time[key] / n[key] : Double.NaN;
+		}
+
+		/**
+		 * Returns the effective index of difficulty of a key, in bits.
+		 */
+		double getIndexOfDifficulty(int key)
+		{
+			return Math.log(getEffectiveDistance(key) / getEffectiveWidth(key) + 1.0) / Math.log(2.0);
+		}
+
+		/**
+		 * Returns the throughput of a key, in bits per second (NaN if it has fewer than two movements).
+		 */
+		double getThroughput(int key)
+		{
+			return getIndexOfDifficulty(key) / getMovementTime(key) * 1000.0;
+		}
+	}
+
+	private final File[] sd1Files;
+	private final List<KeyboardLayout> layouts;
+
+	/**
+	 * Prepare to analyse the sd1 files given.
+	 */
+	FittsAnalyzer(File[] sd1FilesArg, List<KeyboardLayout> layoutsArg)
+	{
+		sd1Files = sd1FilesArg;
+		layouts = layoutsArg;
+	}
+
+	/**
+	 * Analyse all the files. Returns the movements of each participant and layout ("P01,qwerty").
+	 */
+	Map<String, KeyStats> run()
+	{
+		return StudyFiles.analyse(sd1Files, this);
+	}
+
+	public Map<String, KeyStats> create()
+	{
+		return new TreeMap<String, KeyStats>();
+	}
+
+	public void merge(Map<String, KeyStats> into, Map<String, KeyStats> stats)
+	{
+		for (Map.Entry<String, KeyStats> e : stats.entrySet())
+			statsFor(into, e.getKey(), e.getValue().layout).merge(e.getValue());
+	}
+
+	/**
+	 * Read an sd1 file a phrase at a time, adding each movement to the statistics of its target key.
+	 */
+	public void analyse(File sd1File, Map<String, KeyStats> stats) throws IOException
+	{
+		String[] fields = StudyFiles.fields(sd1File);
+		KeyboardLayout layout = StudyFiles.layout(layouts, fields);
+		KeyStats keys = statsFor(stats, StudyFiles.participant(fields) + "," + layout.getName(), layout);
+
+		BufferedReader in = StudyFiles.open(sd1File);
+		try
+		{
+			String presented;
+			while ((presented = in.readLine()) != null)
+			{
+				if (in.readLine() == null) // the transcribed phrase
+					throw new IOException("no transcription in " + sd1File.getName());
+
+				int length = 0; // of the text entered so far
+				boolean hasStart = false;
+				double startX = 0.0, startY = 0.0, startTime = 0.0; // where and when the finger last left the keyboard
+				String sample;
+				while ((sample = in.readLine()) != null && !sample.equals(END_OF_PHRASE))
+				{
+					String[] s = sample.split(", ");
+					if (s.length < 2)
+						throw new IOException("bad keystroke in " + sd1File.getName() + ": " + sample);
+					String label = s[1];
+					boolean hasPoint = s.length >= 5;
+					double x = 0.0, y = 0.0, time, timeDown = 0.0;
+					try
+					{
+						time = Double.parseDouble(s[0]);
+						if (hasPoint)
+						{
+							x = Double.parseDouble(s[2]);
+							y = Double.parseDouble(s[3]);
+							timeDown = Double.parseDouble(s[4]);
+						}
+					} catch (NumberFormatException e)
+					{
+						throw new IOException("bad keystroke in " + sd1File.getName() + ": " + sample);
+					}
+
+					if (label.equals("Bksp"))
+					{
+						if (length > 0)
+							--length;
+					} else if (label.equals("Space") || label.length() == 1)
+					{
+						if (hasPoint && hasStart && length < presented.length())
+							addMovement(keys, presented.charAt(length), startX, startY, x, y, timeDown - startTime);
+						++length;
+					}
+
+					hasStart = hasPoint;
+					startX = x;
+					startY = y;
+					startTime = time;
+				}
+			}
+		} finally
+		{
+			in.close();
+		}
+	}
+
+	/*
+	 * Add a movement from (startX, startY) that ends at (x, y), aimed at the key of a character.
+	 */
+	private static void addMovement(KeyStats keys, char target, double startX, double startY, double x, double y,
+			double movementTime)
+	{
+		int key = keys.layout.findKey(target, x, y);
+		if (key < 0 || movementTime <= 0.0)
+			return; // not on the layout
+		double axisX = keys.layout.getCentreX(key) - startX;
+		double axisY = keys.layout.getCentreY(key) - startY;
+		double a = Math.sqrt(axisX * axisX + axisY * axisY);
+		if (a == 0.0)
+			return; // no direction
+		double deviation = ((x - keys.layout.getCentreX(key)) * axisX + (y - keys.layout.getCentreY(key)) * axisY) / a;
+		keys.add(key, deviation, a + deviation, movementTime);
+	}
+
+	private static KeyStats statsFor(Map<String, KeyStats> stats, String condition, KeyboardLayout layout)
+	{
+		KeyStats s = stats.get(condition);
+		if (s == null)
+		{
+			s = new KeyStats(layout);
+			stats.put(condition, s);
+		}
+		return s;
+	}
+
+	/**
+	 * Print the throughput of each participant and layout as comma-separated values: the number of keys with at least
+	 * two movements and their movements, then the means over those keys of the effective width and distance (in
+	 * baseline key widths), the effective index of difficulty (bits), the movement time (ms) and the throughput (bits
+	 * per second). A participant and layout with no such key is left out.
+	 */
+	static void print(Map<String, KeyStats> stats, PrintStream out)
+	{
+		out.println("Participant,Layout,Keys,Movements,We,De,IDe(bits),MT(ms),Throughput(bps)");
+		for (Map.Entry<String, KeyStats> e : stats.entrySet())
+		{
+			KeyStats s = e.getValue();
+			int keys = 0;
+			long movements = 0;
+			double we = 0.0, de = 0.0, id = 0.0, mt = 0.0, tp = 0.0;
+			for (int k = 0; k < s.n.length; k++)
+			{
+				double throughput = s.getThroughput(k);
+				if (Double.isNaN(throughput) || Double.isInfinite(throughput))
+					continue; // too few movements (or all at one point)
+				++keys;
+				movements += s.n[k];
+				we += s.getEffectiveWidth(k);
+				de += s.getEffectiveDistance(k);
+				id += s.getIndexOfDifficulty(k);
+				mt += s.getMovementTime(k);
+				tp += throughput;
+			}
+			if (keys == 0)
+				continue; // nothing to average
+			out.println(String.format(Locale.CANADA, "%s,%d,%d,%f,%f,%f,%f,%f", e.getKey(), keys, movements,
+					we / keys, de / keys, id / keys, mt / keys, tp / keys));
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		List<KeyboardLayout> layouts = new ArrayList<KeyboardLayout>();
+		List<String> paths = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-layout") && i + 1 < args.length)
+				layouts.addAll(StudyFiles.readLayouts(args[++i]));
+			else if (args[i].startsWith("-"))
+			{
+				usage();
+				return;
+			} else
+				paths.add(args[i]);
+		}
+		if (paths.isEmpty() || layouts.isEmpty())
+		{
+			usage();
+			return;
+		}
+
+		File[] files = StudyFiles.find(paths, ".sd1");
+		print(new FittsAnalyzer(files, layouts).run(), System.out);
+		System.err.println(files.length + " files");
+	}
+
+	private static void usage()
+	{
+		System.err.println("usage: java FittsAnalyzer -layout file.xml [-layout file.xml ...] dir ...");
+		System.exit(1);
+	}
+}
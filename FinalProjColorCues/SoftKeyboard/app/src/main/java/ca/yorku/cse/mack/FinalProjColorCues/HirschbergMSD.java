@@ -0,0 +1,247 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+/**
+ * HirschbergMSD - finds the MSD and one optimal alignment of an <code>MSD2</code> collection in linear memory.
+ * <p>
+ *
+ * The full 'D' matrix of two 5000-element texts holds 25 million entries. Hirschberg's divide-and-conquer method avoids
+ * it: the distances from the top-left corner to the middle row (computed row by row, keeping only the last rows), and
+ * from the middle row to the bottom-right corner (computed backwards in the same way), show where an optimal path
+ * crosses the middle row. The two halves are then aligned separately, recursively, until they are small enough to
+ * align with a full (small) matrix.
+ * <p>
+ *
+ * With transpositions, a path can also jump over the middle row: a transposition steps from row mid&nbsp;-&nbsp;1 to
+ * row mid&nbsp;+&nbsp;1. Both kinds of crossing are considered when splitting.
+ * <p>
+ *
+ * The work is about twice that of filling the 'D' matrix; the memory is a few rows. The explanation string uses the
+ * characters of <code>MSD2.Alignment.getExplanation()</code>. Related reference:
+ * <p>
+ *
+ * <ul>
+ * <li>A linear space algorithm for computing maximal common subsequences, by Hirschberg (<i>Communications of the
+ * ACM, 1975</i>).
+ * </ul>
+ */
+final class HirschbergMSD
+{
+	/**
+	 * Blocks with at most this many cells are aligned with a full matrix.
+	 */
+	private static final int BASE_CELLS = 1 << 12;
+
+	private final MSD2 msd2;
+	private final int n, m; // presented and transcribed sizes
+
+	// rolling rows for the forward and backward passes
+	private int[] f0, f1, f2, b0, b1, b2;
+
+	private final StringBuilder explanation = new StringBuilder();
+	private int distance;
+
+	HirschbergMSD(MSD2 msd2Arg)
+	{
+		msd2 = msd2Arg;
+		n = msd2.getPresentedSize();
+		m = msd2.getTranscribedSize();
+		f0 = new int[m + 1];
+		f1 = new int[m + 1];
+		f2 = new int[m + 1];
+		b0 = new int[m + 1];
+		b1 = new int[m + 1];
+		b2 = new int[m + 1];
+	}
+
+	/**
+	 * Align the whole collection. Returns the explanation string.
+	 */
+	String align()
+	{
+		explanation.setLength(0);
+		distance = align(0, n, 0, m);
+		return explanation.toString();
+	}
+
+	/**
+	 * Returns the minimum string distance found by <code>align()</code>.
+	 */
+	int getDistance()
+	{
+		return distance;
+	}
+
+	/*
+	 * Append the explanation of an optimal path from (i0,j0) to (i1,j1), and return its cost.
+	 */
+	private int align(int i0, int i1, int j0, int j1)
+	{
+		if (i1 - i0 < 2 || (long) (i1 - i0 + 1) * (j1 - j0 + 1) <= BASE_CELLS)
+			return alignBlock(i0, i1, j0, j1);
+
+		int mid = (i0 + i1) >>> 1;
+		forward(i0, mid, j0, j1); // f1 = row mid - 1, f2 = row mid
+		backward(mid, i1, j0, j1); // b1 = row mid + 1, b2 = row mid
+
+		// the best cell of the middle row...
+		int best = Integer.MAX_VALUE, split = -1;
+		boolean jump = false;
+		for (int j = j0; j <= j1; j++)
+		{
+			int cost = f2[j - j0] + b2[j - j0];
+			if (cost < best)
+			{
+				best = cost;
+				split = j;
+			}
+		}
+
+		// ... or a transposition over it, from (mid-1, j-1) to (mid+1, j+1)
+		for (int j = j0 + 1; j < j1; j++)
+		{
+			int t = msd2.transposedDistance(mid, j);
+			if (t >= MSD2.MSDCollection.Infinity)
+				continue;
+			int cost = f1[j - 1 - j0] + t + b1[j + 1 - j0];
+			if (cost < best)
+			{
+				best = cost;
+				split = j;
+				jump = true;
+			}
+		}
+
+		if (jump)
+		{
+			align(i0, mid - 1, j0, split - 1);
+			explanation.append("tt");
+			align(mid + 1, i1, split + 1, j1);
+		} else
+		{
+			align(i0, mid, j0, split);
+			align(mid, i1, split, j1);
+		}
+		return best;
+	}
+
+	/*
+	 * The distances from (i0,j0) to rows mid - 1 (left in f1) and mid (left in f2), columns j0 to j1.
+	 */
+	private void forward(int i0, int mid, int j0, int j1)
+	{
+		int w = j1 - j0;
+		for (int j = 0; j <= w; j++)
+			f2[j] = j;
+
+		for (int i = i0 + 1; i <= mid; i++)
+		{
+			// rotate: f0 = row i - 2, f1 = row i - 1, f2 = row i
+			int[] t = f0;
+			f0 = f1;
+			f1 = f2;
+			f2 = t;
+
+			int r = i - i0;
+			f2[0] = r;
+			for (int j = 1; j <= w; j++)
+			{
+				int c = Math.min(f1[j], f2[j - 1]) + 1;
+				c = Math.min(c, f1[j - 1] + msd2.itemDistance(i - 1, j0 + j - 1));
+				if (r >= 2 && j >= 2)
+					c = Math.min(c, f0[j - 2] + msd2.transposedDistance(i - 1, j0 + j - 1));
+				f2[j] = c;
+			}
+		}
+	}
+
+	/*
+	 * The distances from rows mid (left in b2) and mid + 1 (left in b1) to (i1,j1), columns j0 to j1.
+	 */
+	private void backward(int mid, int i1, int j0, int j1)
+	{
+		int w = j1 - j0;
+		for (int j = 0; j <= w; j++)
+			b2[j] = w - j;
+
+		for (int i = i1 - 1; i >= mid; i--)
+		{
+			// rotate: b0 = row i + 2, b1 = row i + 1, b2 = row i
+			int[] t = b0;
+			b0 = b1;
+			b1 = b2;
+			b2 = t;
+
+			int r = i1 - i;
+			b2[w] = r;
+			for (int j = w - 1; j >= 0; j--)
+			{
+				int c = Math.min(b1[j], b2[j + 1]) + 1;
+				c = Math.min(c, b1[j + 1] + msd2.itemDistance(i, j0 + j));
+				if (r >= 2 && j + 2 <= w)
+					c = Math.min(c, b0[j + 2] + msd2.transposedDistance(i + 1, j0 + j + 1));
+				b2[j] = c;
+			}
+		}
+	}
+
+	/*
+	 * Align a small block with a full matrix, walking back from (i1,j1) and trying the steps in the same order as
+	 * MSD2.
+	 */
+	private int alignBlock(int i0, int i1, int j0, int j1)
+	{
+		int rows = i1 - i0 + 1, w = j1 - j0 + 1;
+		int[] d = new int[rows * w];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < w; j++)
+			{
+				if (i == 0 || j == 0)
+				{
+					d[i * w + j] = i + j;
+					continue;
+				}
+				int c = Math.min(d[(i - 1) * w + j], d[i * w + j - 1]) + 1;
+				c = Math.min(c, d[(i - 1) * w + j - 1] + msd2.itemDistance(i0 + i - 1, j0 + j - 1));
+				if (i >= 2 && j >= 2)
+					c = Math.min(c, d[(i - 2) * w + j - 2] + msd2.transposedDistance(i0 + i - 1, j0 + j - 1));
+				d[i * w + j] = c;
+			}
+
+		char[] ops = new char[rows + w];
+		int count = 0;
+		int i = rows - 1, j = w - 1;
+		while (i > 0 || j > 0)
+		{
+			int here = d[i * w + j];
+			if (i > 0 && j > 0 && here == d[(i - 1) * w + j - 1]
+					&& msd2.itemDistance(i0 + i - 1, j0 + j - 1) == 0)
+			{
+				ops[count++] = 'c';
+				i--;
+				j--;
+			} else if (i > 0 && j > 0 && here == d[(i - 1) * w + j - 1] + 1)
+			{
+				ops[count++] = 'x';
+				i--;
+				j--;
+			} else if (j > 0 && here == d[i * w + j - 1] + 1)
+			{
+				ops[count++] = 'i';
+				j--;
+			} else if (i > 0 && here == d[(i - 1) * w + j] + 1)
+			{
+				ops[count++] = 'd';
+				i--;
+			} else
+			{
+				ops[count++] = 't';
+				ops[count++] = 't';
+				i -= 2;
+				j -= 2;
+			}
+		}
+		for (int k = count - 1; k >= 0; k--)
+			explanation.append(ops[k]);
+		return d[rows * w - 1];
+	}
+}
@@ -0,0 +1,278 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+/**
+ * IncrementalMSD - the minimum string distance between a fixed presented text and a transcribed text that grows and
+ * shrinks one character at a time.
+ * <p>
+ *
+ * The presented text provides the rows of the 'D' matrix. Each character appended to the transcribed text adds one
+ * column, computed from the previous column in O(presented.length()) time; a backspace simply drops the last column.
+ * The current MSD and error rates are therefore always available in constant time, with no matrix rebuild when the
+ * phrase is finished.
+ * <p>
+ *
+ * Alongside each column, the number of optimal paths from the top-left corner into each cell, and the mean length of
+ * those paths, are kept (see <code>MSD.meanAlignmentSize()</code>). The mean alignment size, and so the
+ * "new-and-improved" error rate, are then available in constant time as well. The values are identical to those of
+ * <code>new MSD(presented, transcribed)</code>, apart from rounding in the last digit of the mean alignment size.
+ * <p>
+ *
+ * Example:
+ *
+ * <pre>
+ *     IncrementalMSD live = new IncrementalMSD(&quot;the quick brown fox&quot;);
+ *     live.append('t');
+ *     live.append('g');
+ *     live.deleteLast(); // backspace
+ *     live.append('h');
+ *     int errorsSoFar = live.getMSD();
+ * </pre>
+ */
+public class IncrementalMSD
+{
+	private static final int INITIAL_COLUMNS = 64;
+
+	private String presented;
+	private int rows; // presented.length() + 1
+
+	private char[] transcribed; // the transcribed text
+	private int columns; // number of columns in use (transcribed length + 1)
+
+	// the 'D' matrix, and path counts and mean path lengths, column by column
+	private int[] d;
+	private double[] count, mean;
+
+	/**
+	 * Create an IncrementalMSD object for an empty presented text. Use <code>reset()</code> to set the presented text.
+	 */
+	public IncrementalMSD()
+	{
+		this("");
+	}
+
+	/**
+	 * Create an IncrementalMSD object with an empty transcribed text.
+	 *
+	 * @param presentedArg
+	 *            the presented text
+	 */
+	public IncrementalMSD(String presentedArg)
+	{
+		transcribed = new char[INITIAL_COLUMNS];
+		d = new int[0];
+		count = new double[0];
+		mean = new double[0];
+		reset(presentedArg);
+	}
+
+	/**
+	 * Start over with a new presented text and an empty transcribed text. Storage is reused.
+	 *
+	 * @param presentedArg
+	 *            the presented text
+	 */
+	public void reset(String presentedArg)
+	{
+		presented = presentedArg;
+		rows = presented.length() + 1;
+		columns = 0;
+		ensureCapacity(1);
+
+		// the first column: D[i][0] = i, reached by a single path of length i
+		for (int i = 0; i < rows; i++)
+		{
+			d[i] = i;
+			count[i] = 1.0;
+			mean[i] = i;
+		}
+		columns = 1;
+	}
+
+	/**
+	 * Start over with a prepared presented text and an empty transcribed text. The first column is copied from the
+	 * prepared text rather than computed.
+	 */
+	void reset(PresentedText p)
+	{
+		presented = p.getText();
+		rows = presented.length() + 1;
+		columns = 0;
+		ensureCapacity(1);
+		System.arraycopy(p.firstColumn, 0, d, 0, rows);
+		System.arraycopy(p.firstCount, 0, count, 0, rows);
+		System.arraycopy(p.firstMean, 0, mean, 0, rows);
+		columns = 1;
+	}
+
+	private void ensureCapacity(int cols)
+	{
+		if (transcribed.length < cols)
+		{
+			char[] t = new char[Math.max(cols, 2 * transcribed.length)];
+			System.arraycopy(transcribed, 0, t, 0, Math.max(columns - 1, 0));
+			transcribed = t;
+		}
+		if (d.length < cols * rows)
+		{
+			int size = Math.max(cols, 2 * transcribed.length) * rows;
+			int[] dd = new int[size];
+			double[] cc = new double[size];
+			double[] mm = new double[size];
+			System.arraycopy(d, 0, dd, 0, columns * rows);
+			System.arraycopy(count, 0, cc, 0, columns * rows);
+			System.arraycopy(mean, 0, mm, 0, columns * rows);
+			d = dd;
+			count = cc;
+			mean = mm;
+		}
+	}
+
+	/**
+	 * Append a character to the transcribed text (one column of the 'D' matrix).
+	 *
+	 * @param c
+	 *            the character entered
+	 */
+	public void append(char c)
+	{
+		ensureCapacity(columns + 1);
+		transcribed[columns - 1] = c;
+
+		int left = (columns - 1) * rows; // the previous column
+		int here = columns * rows;
+		double max = 0.0;
+
+		d[here] = columns;
+		for (int i = 0; i < rows; i++)
+		{
+			int k = here + i;
+			if (i > 0)
+			{
+				int a = d[k - 1] + 1;
+				int b = d[left + i] + 1;
+				int diag = d[left + i - 1] + (presented.charAt(i - 1) == c ? 0 : 1);
+				d[k] = Math.min(Math.min(a, b), diag);
+			}
+
+			double w = 0.0, s = 0.0;
+
+			// correct (matching) characters or substitution error
+			if (i > 0 && ((d[k] == d[left + i - 1] && presented.charAt(i - 1) == c) || d[k] == d[left + i - 1] + 1))
+			{
+				w += count[left + i - 1];
+				s += count[left + i - 1] * (mean[left + i - 1] + 1.0);
+			}
+
+			// insertion error (presented character with no transcribed counterpart)
+			if (i > 0 && d[k] == d[k - 1] + 1)
+			{
+				w += count[k - 1];
+				s += count[k - 1] * (mean[k - 1] + 1.0);
+			}
+
+			// deletion error (transcribed character with no presented counterpart)
+			if (d[k] == d[left + i] + 1)
+			{
+				w += count[left + i];
+				s += count[left + i] * (mean[left + i] + 1.0);
+			}
+
+			count[k] = w;
+			mean[k] = w > 0.0 ? s / w : 0.0;
+			if (w > max)
+				max = w;
+		}
+
+		// rescale the column so the path counts cannot overflow (only their ratios matter)
+		if (max > 0.0)
+			for (int i = 0; i < rows; i++)
+				count[here + i] /= max;
+
+		++columns;
+	}
+
+	/**
+	 * Remove the last character of the transcribed text (a backspace). Does nothing if the transcribed text is empty.
+	 */
+	public void deleteLast()
+	{
+		if (columns > 1)
+			--columns;
+	}
+
+	/**
+	 * Returns the presented text.
+	 */
+	public String getPresented()
+	{
+		return presented;
+	}
+
+	/**
+	 * Returns the length of the transcribed text.
+	 */
+	public int getTranscribedLength()
+	{
+		return columns - 1;
+	}
+
+	/**
+	 * Returns the transcribed text.
+	 */
+	public String getTranscribed()
+	{
+		return new String(transcribed, 0, columns - 1);
+	}
+
+	/**
+	 * Returns true if this object holds the given presented and transcribed texts.
+	 */
+	public boolean matches(String presentedArg, CharSequence transcribedArg)
+	{
+		if (!presented.equals(presentedArg) || transcribedArg.length() != columns - 1)
+			return false;
+		for (int j = 0; j < columns - 1; j++)
+			if (transcribed[j] != transcribedArg.charAt(j))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Return an integer equal to the minimum distance between the presented text and the current transcribed text.
+	 */
+	public int getMSD()
+	{
+		return d[columns * rows - 1];
+	}
+
+	/**
+	 * Return a double equal to the text entry error rate (%). See <code>MSD.getErrorRate()</code>.
+	 */
+	public double getErrorRate()
+	{
+		return (double) getMSD() / Math.max(rows - 1, columns - 1) * 100.0;
+	}
+
+	/**
+	 * Returns the mean size of the alignment strings as a double. See <code>MSD.meanAlignmentSize()</code>.
+	 * <p>
+	 *
+	 * For texts of many hundreds of characters, the path counts of the bottom-right cell can underflow relative to
+	 * other cells of its column; the value is then recomputed with <code>MSD</code>.
+	 */
+	public double meanAlignmentSize()
+	{
+		int k = columns * rows - 1;
+		if (count[k] > 0.0)
+			return mean[k];
+		return MSD.forThread().reset(presented, getTranscribed()).meanAlignmentSize();
+	}
+
+	/**
+	 * Returns the new-and-improved measure for the MSD error rate. See <code>MSD.getErrorRateNew()</code>.
+	 */
+	public double getErrorRateNew()
+	{
+		return getMSD() / meanAlignmentSize() * 100.0;
+	}
+}
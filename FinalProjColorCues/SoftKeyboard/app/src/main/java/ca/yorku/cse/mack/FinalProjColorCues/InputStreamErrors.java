@@ -0,0 +1,180 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+/**
+ * InputStreamErrors - the errors made and corrected while a phrase is entered, from its input stream.
+ * <p>
+ *
+ * The MSD of the final transcription shows only the errors left in it. Errors corrected with BACKSPACE on the way are
+ * invisible there, although they cost time. Following Soukoreff and MacKenzie, the keystrokes of the input stream are
+ * put in four classes:
+ * <p>
+ *
+ * <ul>
+ * <li>C (correct): characters of the transcribed text that are correct, max(|P|, |T|) - MSD(P, T)
+ *
+ * <li>INF (incorrect not fixed): errors left in the transcribed text, MSD(P, T)
+ *
+ * <li>IF (incorrect fixed): characters entered and then erased
+ *
+ * <li>F (fixes): the BACKSPACE keystrokes
+ * </ul>
+ * <p>
+ *
+ * IF and F are counted as the keystrokes arrive (<code>append()</code>, <code>deleteLast()</code>), in constant time
+ * each, with no copy of the text. C and INF need only the MSD of the final transcription, which
+ * <code>IncrementalMSD</code> (on the device) or <code>MSDBatch</code> (in <code>StudyAnalyzer</code>) provides.
+ * Related reference:
+ * <p>
+ *
+ * <ul>
+ * <li>Metrics for text entry research: An evaluation of MSD and KSPC, and a new unified error metric, by Soukoreff and
+ * MacKenzie (<i>CHI 2003</i>).
+ * </ul>
+ */
+public class InputStreamErrors
+{
+	/**
+	 * The classified keystrokes of one phrase.
+	 */
+	public static class Counts
+	{
+		public final int correct; // C
+		public final int incorrectNotFixed; // INF
+		public final int incorrectFixed; // IF
+		public final int fixes; // F
+
+		Counts(int correctArg, int incorrectNotFixedArg, int incorrectFixedArg, int fixesArg)
+		{
+			correct = correctArg;
+			incorrectNotFixed = incorrectNotFixedArg;
+			incorrectFixed = incorrectFixedArg;
+			fixes = fixesArg;
+		}
+
+		/**
+		 * Returns the total error rate (%), (INF + IF) / (C + INF + IF).
+		 */
+		public double getTotalErrorRate()
+		{
+			return ratio(incorrectNotFixed + incorrectFixed, correct + incorrectNotFixed + incorrectFixed);
+		}
+
+		/**
+		 * Returns the corrected error rate (%), IF / (C + INF + IF).
+		 */
+		public double getCorrectedErrorRate()
+		{
+			return ratio(incorrectFixed, correct + incorrectNotFixed + incorrectFixed);
+		}
+
+		/**
+		 * Returns the not corrected error rate (%), INF / (C + INF + IF).
+		 */
+		public double getNotCorrectedErrorRate()
+		{
+			return ratio(incorrectNotFixed, correct + incorrectNotFixed + incorrectFixed);
+		}
+
+		/**
+		 * Returns the utilized bandwidth (%), C / (C + INF + IF + F): the share of the keystrokes that went into the
+		 * correct text.
+		 */
+		public double getUtilizedBandwidth()
+		{
+			return ratio(correct, correct + incorrectNotFixed + incorrectFixed + fixes);
+		}
+
+		/**
+		 * Returns the wasted bandwidth (%), 100 - the utilized bandwidth.
+		 */
+		public double getWastedBandwidth()
+		{
+			return ratio(incorrectNotFixed + incorrectFixed + fixes, correct + incorrectNotFixed + incorrectFixed
+					+ fixes);
+		}
+
+		private static double ratio(int a, int b)
+		{
+			return b == 0 ? 0.0 : (double)a / b * 100.0;
+		}
+	}
+
+	private int length; // the length of the text entered so far
+	private int incorrectFixed, fixes;
+
+	/**
+	 * Start a new phrase.
+	 */
+	public void reset()
+	{
+		length = 0;
+		incorrectFixed = 0;
+		fixes = 0;
+	}
+
+	/**
+	 * A character was entered.
+	 */
+	public void append(char c)
+	{
+		++length;
+	}
+
+	/**
+	 * A BACKSPACE was entered. It is a fix even if there was nothing to erase.
+	 */
+	public void deleteLast()
+	{
+		++fixes;
+		if (length > 0)
+		{
+			--length;
+			++incorrectFixed;
+		}
+	}
+
+	/**
+	 * Replay a keystroke recorded in an sd1 file, by the label of its key ("Bksp", "Space", "Enter", or a character).
+	 */
+	public void keystroke(String label)
+	{
+		if (label.equals("Bksp"))
+			deleteLast();
+		else if (label.equals("Space"))
+			append(' ');
+		else if (label.length() == 1)
+			append(label.charAt(0));
+		// ENTER (with nothing entered) and other keys enter no text
+	}
+
+	/**
+	 * Returns the number of characters erased so far (IF).
+	 */
+	public int getIncorrectFixed()
+	{
+		return incorrectFixed;
+	}
+
+	/**
+	 * Returns the number of BACKSPACE keystrokes so far (F).
+	 */
+	public int getFixes()
+	{
+		return fixes;
+	}
+
+	/**
+	 * Classify the keystrokes of the phrase, given the final comparison of the presented and transcribed texts.
+	 *
+	 * @param presentedLength
+	 *            the length of the presented text
+	 * @param transcribedLength
+	 *            the length of the transcribed text, as scored
+	 * @param msd
+	 *            the MSD of the presented and transcribed texts
+	 */
+	public Counts getCounts(int presentedLength, int transcribedLength, int msd)
+	{
+		return new Counts(Math.max(presentedLength, transcribedLength) - msd, msd, incorrectFixed, fixes);
+	}
+}
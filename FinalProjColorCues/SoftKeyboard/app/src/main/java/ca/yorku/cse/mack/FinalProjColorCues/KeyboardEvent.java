@@ -32,9 +32,16 @@ class KeyboardEvent
 	long timeStampFingerDown; // time stamp of finger down (beginning of gesture)
 	long timeStampFingerUp; // time stamp of finger up (end of gesture)
 	int duration; // duration of gesture
+	float xFingerUp, yFingerUp; // where the finger left the keyboard (baseline key widths, from the first key)
 
 	KeyboardEvent(String rawArg, int charCodeArg, int typeArg, long timeStampFingerDownArg,
 			long timeStampFingerUpArg)
+	{
+		this(rawArg, charCodeArg, typeArg, timeStampFingerDownArg, timeStampFingerUpArg, Float.NaN, Float.NaN);
+	}
+
+	KeyboardEvent(String rawArg, int charCodeArg, int typeArg, long timeStampFingerDownArg,
+			long timeStampFingerUpArg, float xFingerUpArg, float yFingerUpArg)
 	{
 		raw = rawArg;
 		charCode = charCodeArg;
@@ -42,5 +49,7 @@ class KeyboardEvent
 		timeStampFingerDown = timeStampFingerDownArg;
 		timeStampFingerUp = timeStampFingerUpArg;
 		duration = (int)(timeStampFingerUp - timeStampFingerDown);
+		xFingerUp = xFingerUpArg;
+		yFingerUp = yFingerUpArg;
 	}
 }
@@ -0,0 +1,353 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * KeyboardLayout - the geometry of a soft keyboard layout, for analysis.
+ * <p>
+ *
+ * A layout is read from the same definition as <code>KeyboardPanel.loadKeyboardFromResource()</code>: the first entry
+ * is the baseline key width and height ("36, 40"), and each further entry is a key ("Q, 0, 0, 1, 1": the label, then
+ * the position and size in baseline key widths and heights). Distances are measured in baseline key widths. Letter
+ * keys type both the lower- and upper-case letter, and the "Space" key types ' '. Other keys (e.g., "Enter", "Bksp")
+ * type no character. A character may be on several keys (e.g., the space keys of the OPTI layout).
+ * <p>
+ *
+ * The geometry is used to weight substitution errors: a character entered instead of its neighbour (a key touching
+ * it) is a smaller error than one entered instead of a key across the keyboard. See <code>getCosts()</code> and
+ * <code>MSD2.LayoutCollection</code>. Example:
+ *
+ * <pre>
+ *     KeyboardLayout qwerty = new KeyboardLayout(&quot;qwerty&quot;, getResources().getStringArray(R.array.qwerty));
+ *     KeyboardLayout.Costs costs = qwerty.getCosts(KeyboardLayout.NEIGHBOUR_COST);
+ *     WeightedMSD w = new WeightedMSD(new MSD2.LayoutCollection(presented, transcribed, false, costs));
+ * </pre>
+ */
+public class KeyboardLayout
+{
+	/**
+	 * The default cost of substituting a character on a neighbouring key.
+	 */
+	public static final double NEIGHBOUR_COST = 0.5;
+
+	/**
+	 * Keys this close (in baseline key widths) are neighbours. Allows for the rounding of the positions in the layout
+	 * files (e.g., 0.3333).
+	 */
+	private static final double NEIGHBOUR_GAP = 0.05;
+
+	/**
+	 * The characters of the cost table. Other characters are never neighbours.
+	 */
+	static final int TABLE_SIZE = 128;
+
+	/**
+	 * Substitution costs between the characters of a layout, in a table with one entry per pair of characters.
+	 */
+	public static final class Costs
+	{
+		final double[] cost; // cost[a * TABLE_SIZE + b]
+
+		Costs(double[] costArg)
+		{
+			cost = costArg;
+		}
+
+		/**
+		 * Returns the cost of entering character <code>b</code> instead of <code>a</code>: 0 if they are the same, the
+		 * neighbour cost if they are on the same or touching keys, and 1 otherwise.
+		 */
+		public double get(int a, int b)
+		{
+			if (a == b)
+				return 0.0;
+			if ((a | b) >= TABLE_SIZE)
+				return 1.0;
+			return cost[a * TABLE_SIZE + b];
+		}
+	}
+
+	private final String name;
+	private final double baseWidth; // the baseline key width, in device-independent pixels
+	private final String[] label;
+	private final double[] left, top, right, bottom; // in baseline key widths
+
+	/**
+	 * Create a layout from its definition.
+	 *
+	 * @param nameArg
+	 *            the name of the layout (e.g., "qwerty")
+	 * @param keyboardDef
+	 *            the definition, as for <code>KeyboardPanel.loadKeyboardFromResource()</code>
+	 */
+	public KeyboardLayout(String nameArg, String[] keyboardDef)
+	{
+		if (keyboardDef.length < 1)
+			throw new IllegalArgumentException("empty layout: " + nameArg);
+		name = nameArg;
+
+		String[] widthheight = keyboardDef[0].split(",");
+		if (widthheight.length != 2)
+			throw new IllegalArgumentException("bad baseline key size in layout " + name + ": " + keyboardDef[0]);
+		baseWidth = Double.parseDouble(widthheight[0].trim());
+		double aspect = Double.parseDouble(widthheight[1].trim()) / baseWidth;
+
+		int n = keyboardDef.length - 1;
+		label = new String[n];
+		left = new double[n];
+		top = new double[n];
+		right = new double[n];
+		bottom = new double[n];
+		for (int i = 0; i < n; ++i)
+		{
+			String[] s = keyboardDef[i + 1].split(",");
+			if (s.length != 5)
+				throw new IllegalArgumentException("bad key in layout " + name + ": " + keyboardDef[i + 1]);
+			label[i] = s[0].trim();
+			left[i] = Double.parseDouble(s[1].trim());
+			top[i] = Double.parseDouble(s[2].trim()) * aspect;
+			right[i] = left[i] + Double.parseDouble(s[3].trim());
+			bottom[i] = top[i] + Double.parseDouble(s[4].trim()) * aspect;
+		}
+	}
+
+	/**
+	 * Read the layouts in an Android resource file (e.g., <code>res/values/qwerty.xml</code>), for use away from the
+	 * device. Each <code>&lt;array&gt;</code> that holds a layout definition becomes a layout of the same name; other
+	 * arrays (e.g., phrase sets) are skipped.
+	 */
+	public static List<KeyboardLayout> read(InputStream in) throws IOException
+	{
+		Document doc;
+		try
+		{
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+		} catch (ParserConfigurationException e)
+		{
+			throw new IOException("no XML parser", e);
+		} catch (org.xml.sax.SAXException e)
+		{
+			throw new IOException("not a resource file", e);
+		}
+
+		List<KeyboardLayout> layouts = new ArrayList<KeyboardLayout>();
+		NodeList arrays = doc.getElementsByTagName("array");
+		for (int a = 0; a < arrays.getLength(); ++a)
+		{
+			Element array = (Element)arrays.item(a);
+			NodeList items = array.getElementsByTagName("item");
+			String[] def = new String[items.getLength()];
+			for (int i = 0; i < def.length; ++i)
+				def[i] = items.item(i).getTextContent();
+			try
+			{
+				layouts.add(new KeyboardLayout(array.getAttribute("name"), def));
+			} catch (IllegalArgumentException e)
+			{
+				// not a layout
+			}
+		}
+		return layouts;
+	}
+
+	/**
+	 * Returns the name of the layout.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns the baseline key width, in device-independent pixels (the first number of the definition).
+	 */
+	public double getBaseWidth()
+	{
+		return baseWidth;
+	}
+
+	/**
+	 * Returns the number of keys.
+	 */
+	public int getKeyCount()
+	{
+		return label.length;
+	}
+
+	/**
+	 * Returns the label of a key (e.g., "Q", "Space").
+	 */
+	public String getLabel(int key)
+	{
+		return label[key];
+	}
+
+	/**
+	 * Returns the x co-ordinate of the centre of a key, in baseline key widths.
+	 */
+	public double getCentreX(int key)
+	{
+		return (left[key] + right[key]) / 2.0;
+	}
+
+	/**
+	 * Returns the y co-ordinate of the centre of a key, in baseline key widths.
+	 */
+	public double getCentreY(int key)
+	{
+		return (top[key] + bottom[key]) / 2.0;
+	}
+
+	/**
+	 * Returns the width of a key, in baseline key widths.
+	 */
+	public double getWidth(int key)
+	{
+		return right[key] - left[key];
+	}
+
+	/**
+	 * Returns the height of a key, in baseline key widths.
+	 */
+	public double getHeight(int key)
+	{
+		return bottom[key] - top[key];
+	}
+
+	/**
+	 * Returns the character typed by a key, or -1 if it types none.
+	 */
+	public int getChar(int key)
+	{
+		String s = label[key];
+		if (s.equals("Space"))
+			return ' ';
+		if (s.length() == 1)
+			return Character.toLowerCase(s.charAt(0));
+		return -1;
+	}
+
+	/**
+	 * Returns the first key that types a character, or -1 if none does.
+	 */
+	public int findKey(char c)
+	{
+		for (int k = 0; k < label.length; ++k)
+			if (types(k, c))
+				return k;
+		return -1;
+	}
+
+	/**
+	 * Returns the key nearest a point (in baseline key widths) that types a character, or -1 if none does. Unlike
+	 * <code>findKey(char)</code>, this picks the right one of several keys that type the same character.
+	 */
+	public int findKey(char c, double x, double y)
+	{
+		int best = -1;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (int k = 0; k < label.length; ++k)
+		{
+			if (!types(k, c))
+				continue;
+			double dx = x - getCentreX(k), dy = y - getCentreY(k);
+			double d = dx * dx + dy * dy;
+			if (d < bestDistance)
+			{
+				bestDistance = d;
+				best = k;
+			}
+		}
+		return best;
+	}
+
+	private boolean types(int key, int c)
+	{
+		int k = getChar(key);
+		return k >= 0 && (k == c || k == Character.toLowerCase(c));
+	}
+
+	/**
+	 * Returns the distance between the centres of the closest keys that type two characters, in baseline key widths,
+	 * or -1 if either character is not on the layout.
+	 */
+	public double getDistance(char a, char b)
+	{
+		double best = -1.0;
+		for (int i = 0; i < label.length; ++i)
+			if (types(i, a))
+				for (int j = 0; j < label.length; ++j)
+					if (types(j, b))
+					{
+						double dx = getCentreX(i) - getCentreX(j);
+						double dy = getCentreY(i) - getCentreY(j);
+						double d = Math.sqrt(dx * dx + dy * dy);
+						if (best < 0.0 || d < best)
+							best = d;
+					}
+		return best;
+	}
+
+	/*
+	 * The size of the gap between two keys (0 if they touch or overlap).
+	 */
+	private double gap(int i, int j)
+	{
+		double dx = Math.max(0.0, Math.max(left[i], left[j]) - Math.min(right[i], right[j]));
+		double dy = Math.max(0.0, Math.max(top[i], top[j]) - Math.min(bottom[i], bottom[j]));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Build the table of substitution costs: 0 for the same character, <code>neighbourCost</code> for characters on
+	 * the same or touching keys (e.g., "q" and "a" on Qwerty, or "a" and "A"), and 1 for any other pair.
+	 *
+	 * @param neighbourCost
+	 *            the cost of a neighbouring character, from 0 to 1 (see <code>NEIGHBOUR_COST</code>)
+	 */
+	public Costs getCosts(double neighbourCost)
+	{
+		if (!(neighbourCost >= 0.0 && neighbourCost <= 1.0))
+			throw new IllegalArgumentException("neighbour cost must be from 0 to 1: " + neighbourCost);
+
+		double[] cost = new double[TABLE_SIZE * TABLE_SIZE];
+		Arrays.fill(cost, 1.0);
+		for (int i = 0; i < label.length; ++i)
+			for (int j = 0; j < label.length; ++j)
+			{
+				if (gap(i, j) > NEIGHBOUR_GAP)
+					continue;
+				int a = getChar(i), b = getChar(j);
+				if (a < 0 || b < 0)
+					continue;
+				int[] as = variants(a), bs = variants(b);
+				for (int x : as)
+					for (int y : bs)
+						if (x < TABLE_SIZE && y < TABLE_SIZE)
+							cost[x * TABLE_SIZE + y] = neighbourCost;
+			}
+		for (int c = 0; c < TABLE_SIZE; ++c)
+			cost[c * TABLE_SIZE + c] = 0.0;
+		return new Costs(cost);
+	}
+
+	/*
+	 * The characters a key typing c types (c, and its upper-case form for a letter).
+	 */
+	private static int[] variants(int c)
+	{
+		int u = Character.toUpperCase(c);
+		return u == c ? new int[] { c } : new int[] { c, u };
+	}
+}
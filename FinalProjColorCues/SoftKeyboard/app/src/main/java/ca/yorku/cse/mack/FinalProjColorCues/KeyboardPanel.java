@@ -273,9 +273,16 @@ public class KeyboardPanel extends RelativeLayout implements View.OnTouchListene
 						popupKey.renderAbove(null);
 					timeStampFingerUp = System.currentTimeMillis();
 
+					/*
+					 * The lift-off point is given in baseline key widths from the top-left of the key grid, the
+					 * units of the keyboard definition (see KeyboardLayout), so it does not depend on the device.
+					 */
+					float xUp = (x - margin) / baseWidth;
+					float yUp = (y - topMargin) / baseWidth;
+
 					// callback to the activity implementing OnKeystrokeListener
 					onKeystrokeListener.onKeystroke(new KeyboardEvent(keyText, charCode, type, timeStampFingerDown,
-							timeStampFingerUp));
+							timeStampFingerUp, xUp, yUp));
 
 					currentKey = null;
 					previousKey = null;
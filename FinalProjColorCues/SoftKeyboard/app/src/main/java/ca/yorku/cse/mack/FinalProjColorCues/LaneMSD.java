@@ -0,0 +1,209 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.Arrays;
+
+/**
+ * LaneMSD - the minimum string distances of many short pairs of texts, computed side by side.
+ * <p>
+ *
+ * A single short phrase gives too little work to keep a processor busy: with the bit-vector algorithm (see
+ * <code>BitParallelMSD</code>) a whole column of the 'D' matrix of a phrase of up to 64 characters is one 64-bit word,
+ * and one column takes a handful of operations. This class therefore advances the columns of several pairs (the
+ * "lanes") together. The state of the pairs is held in parallel arrays, one entry per lane, and the character
+ * comparisons of every lane are looked up beforehand, so the loop over the lanes is straight-line arithmetic with no
+ * branches or table lookups, which the compiler and processor can overlap or vectorise.
+ * <p>
+ *
+ * Pairs are sorted by the length of the transcribed text so that the lanes of a group finish at about the same
+ * column. A lane that finishes early keeps running, but its score is no longer updated. Pairs with an empty text, or
+ * with a presented text longer than 64 characters, are scored individually.
+ * <p>
+ *
+ * The values are identical to those of <code>MSD.getMSD()</code>.
+ * <p>
+ *
+ * Example:
+ *
+ * <pre>
+ *     int[] msd = LaneMSD.getMSD(presented, transcribed); // msd[k] is the MSD of pair k
+ * </pre>
+ */
+public class LaneMSD
+{
+	/**
+	 * The number of pairs advanced together.
+	 */
+	static final int LANES = 8;
+
+	private static final int WORD_SIZE = 64;
+	private static final int ASCII_SIZE = 128;
+
+	private static final ThreadLocal<LaneMSD> workspace = new ThreadLocal<LaneMSD>()
+	{
+		protected LaneMSD initialValue()
+		{
+			return new LaneMSD();
+		}
+	};
+
+	// the state of each lane
+	private final int[] pair = new int[LANES]; // the pair in the lane
+	private final int[] end = new int[LANES]; // the length of its transcribed text
+	private final int[] shift = new int[LANES]; // the bit of the bottom row (presented length - 1)
+	private final int[] score = new int[LANES];
+	private final long[] pv = new long[LANES];
+	private final long[] mv = new long[LANES];
+
+	private long[] eqs = new long[0]; // match masks, indexed [column * LANES + lane]
+	private long[] order = new long[0]; // (transcribed length, pair) of the pairs to be run in lanes
+	private final long[] ascii = new long[ASCII_SIZE]; // match masks of the presented text being encoded
+
+	private LaneMSD()
+	{
+	}
+
+	/**
+	 * Return the minimum distance between each presented text and its transcribed text.
+	 *
+	 * @param presented
+	 *            the presented texts
+	 * @param transcribed
+	 *            the transcribed texts (the same number as presented)
+	 * @return an array with entry <code>k</code> equal to the MSD of <code>presented[k]</code> and
+	 *         <code>transcribed[k]</code>.
+	 */
+	public static int[] getMSD(String[] presented, String[] transcribed)
+	{
+		if (presented.length != transcribed.length)
+			throw new IllegalArgumentException("presented and transcribed differ in length: " + presented.length
+					+ " vs " + transcribed.length);
+		int[] msd = new int[presented.length];
+		workspace.get().distances(presented, transcribed, 0, presented.length, msd);
+		return msd;
+	}
+
+	/**
+	 * Store the distances of pairs <code>from</code> to <code>to - 1</code> in the corresponding entries of
+	 * <code>msd</code>, using the calling thread's workspace.
+	 */
+	static void getMSD(String[] presented, String[] transcribed, int from, int to, int[] msd)
+	{
+		workspace.get().distances(presented, transcribed, from, to, msd);
+	}
+
+	private void distances(String[] presented, String[] transcribed, int from, int to, int[] msd)
+	{
+		if (order.length < to - from)
+			order = new long[to - from];
+
+		int count = 0;
+		for (int k = from; k < to; k++)
+		{
+			int m = presented[k].length();
+			int n = transcribed[k].length();
+			if (m == 0)
+				msd[k] = n;
+			else if (n == 0)
+				msd[k] = m;
+			else if (m > WORD_SIZE)
+				msd[k] = BitParallelMSD.getMSD(presented[k], transcribed[k]);
+			else
+				order[count++] = (long) n << 32 | k;
+		}
+		Arrays.sort(order, 0, count);
+
+		for (int g = 0; g < count; g += LANES)
+			runGroup(presented, transcribed, g, Math.min(LANES, count - g), msd);
+	}
+
+	/*
+	 * Run the pairs order[g] to order[g + lanes - 1] side by side.
+	 */
+	private void runGroup(String[] presented, String[] transcribed, int g, int lanes, int[] msd)
+	{
+		int columns = (int) (order[g + lanes - 1] >>> 32); // the longest transcribed text is last
+		if (eqs.length < columns * LANES)
+			eqs = new long[Math.max(columns * LANES, 2 * eqs.length)];
+
+		for (int l = 0; l < lanes; l++)
+		{
+			int k = (int) order[g + l];
+			String p = presented[k];
+			String t = transcribed[k];
+			pair[l] = k;
+			end[l] = t.length();
+			shift[l] = p.length() - 1;
+			score[l] = p.length();
+			pv[l] = -1L;
+			mv[l] = 0L;
+			encode(p, t, l, columns);
+		}
+
+		for (int j = 0; j < columns; j++)
+		{
+			int base = j * LANES;
+			for (int l = 0; l < lanes; l++)
+			{
+				long eq = eqs[base + l];
+				long p = pv[l];
+				long m = mv[l];
+
+				long xv = eq | m;
+				long xh = (((eq & p) + p) ^ p) | eq;
+				long ph = m | ~(xh | p);
+				long mh = p & xh;
+
+				// +1, -1 or 0 at the bottom row; ignored once the lane's transcribed text has ended
+				int delta = (int) (ph >>> shift[l] & 1L) - (int) (mh >>> shift[l] & 1L);
+				score[l] += delta & (j - end[l]) >> 31;
+
+				ph = ph << 1 | 1L;
+				mh <<= 1;
+				pv[l] = mh | ~(xv | ph);
+				mv[l] = ph & xv;
+			}
+		}
+
+		for (int l = 0; l < lanes; l++)
+			msd[pair[l]] = score[l];
+	}
+
+	/*
+	 * Look up the match mask of each character of t in p, for lane l. Columns past the end of t are left with no match.
+	 */
+	private void encode(String p, String t, int l, int columns)
+	{
+		int m = p.length();
+		for (int i = 0; i < m; i++)
+		{
+			char c = p.charAt(i);
+			if (c < ASCII_SIZE)
+				ascii[c] |= 1L << i;
+		}
+
+		int n = t.length();
+		for (int j = 0; j < n; j++)
+		{
+			char c = t.charAt(j);
+			eqs[j * LANES + l] = c < ASCII_SIZE ? ascii[c] : matchMask(p, c);
+		}
+		for (int j = n; j < columns; j++)
+			eqs[j * LANES + l] = 0L;
+
+		for (int i = 0; i < m; i++)
+		{
+			char c = p.charAt(i);
+			if (c < ASCII_SIZE)
+				ascii[c] = 0L;
+		}
+	}
+
+	private static long matchMask(String p, char c)
+	{
+		long eq = 0L;
+		for (int i = 0; i < p.length(); i++)
+			if (p.charAt(i) == c)
+				eq |= 1L << i;
+		return eq;
+	}
+}
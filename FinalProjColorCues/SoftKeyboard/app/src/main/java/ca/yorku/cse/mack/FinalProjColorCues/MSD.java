@@ -1,5 +1,9 @@
 package ca.yorku.cse.mack.FinalProjColorCues;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 /**
  * MSD -- Minimum String Distance -- a class to generate various statistics related to the lexical distance between two
  * strings. Includes a main method as a demonstration.
@@ -71,7 +75,32 @@ package ca.yorku.cse.mack.FinalProjColorCues;
 public class MSD
 {
 	private String s1, s2;
-	private int[][] d;
+	private int[] d; // the 'D' matrix, row by row
+	private int cols; // s2.length() + 1
+
+	// buffers for meanAlignmentSize()
+	private double[] prevCount, prevMean, count, mean;
+
+	// one reusable workspace per thread (see forThread())
+	private static final ThreadLocal<MSD> workspace = new ThreadLocal<MSD>()
+	{
+		@Override
+		protected MSD initialValue()
+		{
+			return new MSD();
+		}
+	};
+
+	/**
+	 * Create an empty MSD workspace. Use <code>reset()</code> to compute the MSD of a pair of strings.
+	 */
+	public MSD()
+	{
+		s1 = "";
+		s2 = "";
+		d = new int[1];
+		cols = 1;
+	}
 
 	/**
 	 * Create an MSD object.
@@ -82,10 +111,46 @@ public class MSD
 	 *            the 2nd text string (the "transcribed" text)
 	 */
 	public MSD(String s1Arg, String s2Arg)
+	{
+		this();
+		reset(s1Arg, s2Arg);
+	}
+
+	/**
+	 * Re-point this MSD object at a new pair of strings.
+	 * 
+	 * The matrix storage is kept and grows only when a larger pair is seen, so scoring many pairs with the same object
+	 * creates no garbage.
+	 * <p>
+	 * 
+	 * @param s1Arg
+	 *            the 1st text string (the "presented" text)
+	 * @param s2Arg
+	 *            the 2nd text string (the "transcribed" text)
+	 * @return this MSD object
+	 */
+	public MSD reset(String s1Arg, String s2Arg)
 	{
 		s1 = s1Arg;
 		s2 = s2Arg;
 		buildMatrix();
+		return this;
+	}
+
+	/**
+	 * Returns an MSD workspace owned by the calling thread.
+	 * 
+	 * This is intended for batch callers (and the UI thread) that score many pairs, one at a time. For example:
+	 * 
+	 * <pre>
+	 * double er = MSD.forThread().reset(presented, transcribed).getErrorRateNew();
+	 * </pre>
+	 * 
+	 * The object is reused by the next call on the same thread, so do not hold on to it.
+	 */
+	public static MSD forThread()
+	{
+		return workspace.get();
 	}
 
 	private static int r(char a, char b)
@@ -98,32 +163,59 @@ public class MSD
 
 	private void buildMatrix()
 	{
-		d = new int[s1.length() + 1][s2.length() + 1];
+		int rows = s1.length() + 1;
+		cols = s2.length() + 1;
+		if (d.length < rows * cols)
+			d = new int[rows * cols];
 		int i, j;
 
-		if (s1.length() == 0 || s2.length() == 0)
+		for (i = 0; i < rows; i++)
+			d[i * cols] = i;
+
+		for (j = 0; j < cols; j++)
+			d[j] = j;
+
+		if (!WavefrontMSD.worthwhile(rows - 1, cols - 1))
 		{
-			d[s1.length()][s2.length()] = Math.max(s1.length(), s2.length());
+			fillMatrix(1, rows, 1, cols);
 			return;
 		}
 
-		for (i = 0; i < s1.length() + 1; i++)
-			d[i][0] = i;
+		// long texts (e.g., paragraphs) are filled on several processors
+		new WavefrontMSD(rows - 1, cols - 1)
+		{
+			@Override
+			void fillTile(int i0, int i1, int j0, int j1)
+			{
+				fillMatrix(i0, i1, j0, j1);
+			}
+		}.fill();
+	}
 
-		for (j = 0; j < s2.length() + 1; j++)
-			d[0][j] = j;
+	/*
+	 * Fill rows i0 to i1 - 1, columns j0 to j1 - 1 of the 'D' matrix.
+	 */
+	private void fillMatrix(int i0, int i1, int j0, int j1)
+	{
+		int[] d = this.d;
+		int cols = this.cols;
 
-		for (i = 1; i <= s1.length(); i++)
-			for (j = 1; j <= s2.length(); j++)
+		for (int i = i0; i < i1; i++)
+		{
+			char c1 = s1.charAt(i - 1);
+			int row = i * cols;
+			int above = row - cols;
+			for (int j = j0; j < j1; j++)
 			{
 				int a, b, c, m;
-				a = d[i - 1][j] + 1;
-				b = d[i][j - 1] + 1;
-				c = d[i - 1][j - 1] + r(s1.charAt(i - 1), s2.charAt(j - 1));
+				a = d[above + j] + 1;
+				b = d[row + j - 1] + 1;
+				c = d[above + j - 1] + r(c1, s2.charAt(j - 1));
 				m = Math.min(a, b);
 				m = Math.min(m, c);
-				d[i][j] = m;
+				d[row + j] = m;
 			}
+		}
 	}
 
 	/**
@@ -134,11 +226,33 @@ public class MSD
 	 * <code>msdMatrix[s1.length()][s2.length()]</code>.
 	 * <p>
 	 * 
+	 * The matrix is stored internally as a single reusable array; the returned array is a copy (a view of the current
+	 * contents). Use <code>getMatrixEntry()</code> to read single entries without copying.
+	 * <p>
+	 * 
 	 * @return a two dimensional integer array containing the minimum string distance matrix.
 	 */
 	public int[][] getMatrix()
 	{
-		return d;
+		int rows = s1.length() + 1;
+		int[][] m = new int[rows][cols];
+		for (int i = 0; i < rows; i++)
+			System.arraycopy(d, i * cols, m[i], 0, cols);
+		return m;
+	}
+
+	/**
+	 * Returns one entry of the minimum string distance matrix.
+	 * 
+	 * @param i
+	 *            the row (0 to <code>s1.length()</code>)
+	 * @param j
+	 *            the column (0 to <code>s2.length()</code>)
+	 * @return the value of <code>getMatrix()[i][j]</code>
+	 */
+	public int getMatrixEntry(int i, int j)
+	{
+		return d[i * cols + j];
 	}
 
 	/**
@@ -155,7 +269,7 @@ public class MSD
 	 */
 	public int getMSD()
 	{
-		return d[s1.length()][s2.length()];
+		return d[s1.length() * cols + s2.length()];
 	}
 
 	/**
@@ -185,11 +299,101 @@ public class MSD
 		return (double) getMSD() / Math.max(s1.length(), s2.length()) * 100.0;
 	}
 
+	/**
+	 * Return the minimum string distance between two strings, if it is no more than <code>maxDistance</code>.
+	 *
+	 * Only the diagonal band of the 'D' matrix within <code>maxDistance</code> of the main diagonal is computed, since
+	 * any cell further out has a value larger than <code>maxDistance</code> (Ukkonen's cut-off). The computation stops
+	 * as soon as every cell in a row of the band exceeds <code>maxDistance</code>, because the values never decrease
+	 * along a path through the matrix. The cost is O(maxDistance&nbsp;&times;&nbsp;s1.length()) rather than
+	 * O(s1.length()&nbsp;&times;&nbsp;s2.length()), and no matrix is kept.
+	 * <p>
+	 *
+	 * @param s1
+	 *            the 1st text string (the "presented" text)
+	 * @param s2
+	 *            the 2nd text string (the "transcribed" text)
+	 * @param maxDistance
+	 *            the largest distance of interest
+	 * @return the minimum string distance if it is at most <code>maxDistance</code>, or <code>maxDistance + 1</code> if
+	 *         it is greater
+	 */
+	public static int getBoundedMSD(String s1, String s2, int maxDistance)
+	{
+		int n = s1.length();
+		int m = s2.length();
+		int k = Math.max(0, maxDistance);
+		int big = k + 1;
+
+		if (Math.abs(n - m) > k)
+			return big;
+
+		int[] prev = new int[m + 1];
+		int[] cur = new int[m + 1];
+		for (int j = 0; j <= m; j++)
+			prev[j] = Math.min(j, big);
+
+		for (int i = 1; i <= n; i++)
+		{
+			int lo = Math.max(1, i - k);
+			int hi = Math.min(m, i + k);
+			char c1 = s1.charAt(i - 1);
+
+			// the cell left of the band
+			cur[lo - 1] = lo == 1 ? Math.min(i, big) : big;
+			int rowMin = cur[lo - 1];
+
+			for (int j = lo; j <= hi; j++)
+			{
+				int v = Math.min(prev[j], cur[j - 1]) + 1;
+				v = Math.min(v, prev[j - 1] + r(c1, s2.charAt(j - 1)));
+				v = Math.min(v, big);
+				cur[j] = v;
+				if (v < rowMin)
+					rowMin = v;
+			}
+
+			// the cell right of the band (read by the next row)
+			if (hi < m)
+				cur[hi + 1] = big;
+
+			if (rowMin > k)
+				return big;
+
+			int[] t = prev;
+			prev = cur;
+			cur = t;
+		}
+		return prev[m];
+	}
+
+	/**
+	 * Returns true if the text entry error rate (%) of two strings is greater than the given percentage.
+	 *
+	 * The error rate is the one returned by <code>getErrorRate()</code>. This is computed with
+	 * <code>getBoundedMSD()</code>, so screening near-perfect transcriptions is cheap.
+	 * <p>
+	 *
+	 * @param s1
+	 *            the 1st text string (the "presented" text)
+	 * @param s2
+	 *            the 2nd text string (the "transcribed" text)
+	 * @param percent
+	 *            the error rate threshold (%)
+	 */
+	public static boolean isErrorRateAbove(String s1, String s2, double percent)
+	{
+		int longest = Math.max(s1.length(), s2.length());
+		if (longest == 0)
+			return false;
+		int k = (int) Math.floor(percent * longest / 100.0);
+		return getBoundedMSD(s1, s2, k) > k;
+	}
+
 	@SuppressWarnings("unused")
 	private void dumpMatrix()
 	{
-		int rows = d.length;
-		int cols = d[0].length;
+		int rows = s1.length() + 1;
 
 		String s11 = " " + s1;
 		String s22 = " " + s2;
@@ -204,7 +408,7 @@ public class MSD
 			System.out.print(s11.substring(i, i + 1));
 			for (int j = 0; j < cols; ++j)
 			{
-				String f = d[i][j] + "";
+				String f = d[i * cols + j] + "";
 				while (f.length() < 3)
 					f = " " + f;
 				System.out.print(f);
@@ -226,73 +430,173 @@ public class MSD
 	}
 
 	/*
-	 * This is a helper-function used by doAlignments(). It accomplishes two things:
-	 * 
-	 * 1 - Two arrays of String Pairs are concatenated, forming the return array.
+	 * This class does the work of producing the alignment strings. The idea is to traverse the 'D' matrix, from bottom
+	 * right to top left, branching anywhere there is more than one path through the matrix. Rather than recursing, an
+	 * explicit stack is kept: for each step of the current path, the matrix cell, the next branch to try, and the pair
+	 * of aligned characters. An alignment is built only when next() reaches the top-left corner, so a consumer that
+	 * stops early never pays for the remaining alignments.
 	 * 
-	 * 2 - A character (either c1 or c2) is added to the ends of all of the first array strings, as they are copied into
-	 * the return value array. The character c1 is added to all of the presented texts, and c2 to all of the transcribed
-	 * texts.
-	 * 
-	 * The second argument array is added to the result array verbatim.
+	 * The branches are tried in the order deletion, insertion, substitution, correct, which yields the alignments in
+	 * the same order as the original recursive implementation.
 	 */
-	private static StringPair[] DoubleConcat(StringPair[] a, char c1, char c2, StringPair[] b)
+	private class AlignmentIterator implements Iterator<StringPair>
 	{
-		int i;
-		StringPair[] returnvalue = new StringPair[a.length + b.length];
-
-		for (i = 0; i < a.length + b.length; i++)
-			returnvalue[i] = new StringPair();
-
-		for (i = 0; i < a.length; i++)
-			returnvalue[i].CopyConcat(a[i], c1, c2);
-
-		// use the quick array copy here...
-		System.arraycopy(b, 0, returnvalue, a.length, b.length);
+		private final String p, t;
+		private final int[] m;
+		private final int width;
 
-		return returnvalue;
-	}
+		private final int[] xs, ys; // the matrix cell at each depth
+		private final byte[] branch; // the next branch to try at each depth
+		private final char[] c1, c2; // the aligned characters leaving each depth
+		private int depth;
+		private boolean ready;
 
-	/*
-	 * This function does the work of producing the alignment strings. It calls by itself recursively. The idea is to
-	 * traverse the 'D' matrix, from bottom right to top left, recursing anywhere there is more than one path through
-	 * the matrix.<p>
-	 * 
-	 * This function uses the <code>DoubleConcat()</code> function above, and the <code>StringPair</code> class.
-	 */
-	private static StringPair[] doAlignments(String s1, String s2, int[][] d, int x, int y)
-	{
-		StringPair[] returnarray = new StringPair[0];
+		AlignmentIterator()
+		{
+			p = s1;
+			t = s2;
+			m = d;
+			width = cols;
+
+			int maxDepth = p.length() + t.length() + 1;
+			xs = new int[maxDepth];
+			ys = new int[maxDepth];
+			branch = new byte[maxDepth];
+			c1 = new char[maxDepth];
+			c2 = new char[maxDepth];
+
+			xs[0] = p.length();
+			ys[0] = t.length();
+			depth = 0;
+		}
 
-		if (x == 0 && y == 0)
+		/*
+		 * Move the stack to the next complete path. Returns false when there are no more paths.
+		 */
+		private boolean advance()
 		{
-			returnarray = new StringPair[1];
-			returnarray[0] = new StringPair();
-			return returnarray;
+			while (depth >= 0)
+			{
+				int x = xs[depth];
+				int y = ys[depth];
+
+				if (x == 0 && y == 0)
+				{
+					if (branch[depth] == 0)
+					{
+						branch[depth] = 4;
+						return true;
+					}
+					--depth;
+					continue;
+				}
+
+				int here = m[x * width + y];
+				int b = branch[depth]++;
+				int nx, ny;
+				char a1, a2;
+
+				// Deletion Error
+				if (b == 0 && y > 0 && here == m[x * width + y - 1] + 1)
+				{
+					nx = x;
+					ny = y - 1;
+					a1 = '-';
+					a2 = t.charAt(y - 1);
+				}
+
+				// Insertion Error
+				else if (b == 1 && x > 0 && here == m[(x - 1) * width + y] + 1)
+				{
+					nx = x - 1;
+					ny = y;
+					a1 = p.charAt(x - 1);
+					a2 = '-';
+				}
+
+				// Substitution Error
+				else if (b == 2 && x > 0 && y > 0 && here == m[(x - 1) * width + y - 1] + 1)
+				{
+					nx = x - 1;
+					ny = y - 1;
+					a1 = p.charAt(x - 1);
+					a2 = t.charAt(y - 1);
+				}
+
+				// Correct (matching) characters
+				else if (b == 3 && x > 0 && y > 0 && here == m[(x - 1) * width + y - 1]
+						&& p.charAt(x - 1) == t.charAt(y - 1))
+				{
+					nx = x - 1;
+					ny = y - 1;
+					a1 = p.charAt(x - 1);
+					a2 = t.charAt(y - 1);
+				}
+
+				else
+				{
+					// this branch is not on an optimal path (or all branches are done)
+					if (b >= 3)
+						--depth;
+					continue;
+				}
+
+				c1[depth] = a1;
+				c2[depth] = a2;
+				++depth;
+				xs[depth] = nx;
+				ys[depth] = ny;
+				branch[depth] = 0;
+			}
+			return false;
 		}
 
-		if (x > 0 && y > 0)
+		public boolean hasNext()
 		{
-			// Correct (matching) characters
-			if (d[x][y] == d[x - 1][y - 1] && s1.charAt(x - 1) == s2.charAt(y - 1))
-				returnarray = DoubleConcat(doAlignments(s1, s2, d, x - 1, y - 1), s1.charAt(x - 1), s2.charAt(y - 1),
-						returnarray);
-
-			// Substitution Error
-			if (d[x][y] == d[x - 1][y - 1] + 1)
-				returnarray = DoubleConcat(doAlignments(s1, s2, d, x - 1, y - 1), s1.charAt(x - 1), s2.charAt(y - 1),
-						returnarray);
+			if (!ready)
+				ready = advance();
+			return ready;
 		}
 
-		// Insertion Error
-		if (x > 0 && d[x][y] == d[x - 1][y] + 1)
-			returnarray = DoubleConcat(doAlignments(s1, s2, d, x - 1, y), s1.charAt(x - 1), '-', returnarray);
+		public StringPair next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+			ready = false;
+
+			// the stack holds the path from the bottom-right corner, so read it backwards
+			char[] a = new char[depth];
+			char[] b = new char[depth];
+			for (int k = 0; k < depth; k++)
+			{
+				a[k] = c1[depth - 1 - k];
+				b[k] = c2[depth - 1 - k];
+			}
+			StringPair sp = new StringPair();
+			sp.s1 = new String(a);
+			sp.s2 = new String(b);
+			return sp;
+		}
 
-		// Deletion Error
-		if (y > 0 && d[x][y] == d[x][y - 1] + 1)
-			returnarray = DoubleConcat(doAlignments(s1, s2, d, x, y - 1), '-', s2.charAt(y - 1), returnarray);
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
 
-		return returnarray;
+	/**
+	 * Returns an iterator over the pairs of alignment strings for this MSD object's s1/s2 string pair.
+	 * 
+	 * The alignments are produced lazily, one per call to <code>next()</code>, in the same order as
+	 * <code>getAlignments()</code>. The iterator reads this object's 'D' matrix, so do not call <code>reset()</code>
+	 * while iterating.
+	 * <p>
+	 * 
+	 * @return an iterator of <code>StringPair</code>s containing pairs of alignment strings
+	 */
+	public Iterator<StringPair> alignmentIterator()
+	{
+		return new AlignmentIterator();
 	}
 
 	/**
@@ -306,19 +610,111 @@ public class MSD
 	 */
 	public StringPair[] getAlignments()
 	{
-		return doAlignments(s1, s2, d, s1.length(), s2.length());
+		return getAlignments(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns at most <code>limit</code> pairs of alignment strings for this MSD object's s1/s2 string pair.
+	 * 
+	 * The alignments are the first <code>limit</code> of those returned by <code>getAlignments()</code>. The remaining
+	 * alignments are never generated, so this is cheap even when the full set of alignments is very large.
+	 * <p>
+	 * 
+	 * @param limit
+	 *            the maximum number of alignments to return
+	 * @return an array of <code>StringPair</code>s containing pairs of alignment strings
+	 */
+	public StringPair[] getAlignments(int limit)
+	{
+		ArrayList<StringPair> list = new ArrayList<StringPair>();
+		Iterator<StringPair> it = alignmentIterator();
+		while (list.size() < limit && it.hasNext())
+			list.add(it.next());
+		return list.toArray(new StringPair[list.size()]);
 	}
 
 	/**
 	 * Returns the mean size of the alignment string as a double
+	 * <p>
+	 *
+	 * The value is identical to averaging the lengths of the strings returned by <code>getAlignments()</code>, but the
+	 * alignments are never built. Instead, a single pass over the 'D' matrix, from bottom right to top left, counts the
+	 * optimal paths reaching each cell, along with the mean length of those paths. A cell's mean is the count-weighted
+	 * mean of its successors' means, plus one. Walking back from the bottom-right corner means only cells that lie on
+	 * an optimal path ever carry a count. Only two rows are kept, and each row is rescaled by its largest count so the
+	 * (exponentially large) path counts cannot overflow; only their ratios matter.
 	 */
 	public double meanAlignmentSize()
 	{
-		StringPair[] sp = getAlignments();
-		double n = 0.0;
-		for (int i = 0; i < sp.length; ++i)
-			n += sp[i].s1.length();
-		return n / sp.length;
+		int n = s1.length();
+		int m = s2.length();
+
+		if (count == null || count.length < cols)
+		{
+			prevCount = new double[cols];
+			prevMean = new double[cols];
+			count = new double[cols];
+			mean = new double[cols];
+		}
+
+		for (int x = n; x >= 0; x--)
+		{
+			double max = 0.0;
+			int row = x * cols;
+			int below = row + cols;
+			for (int y = m; y >= 0; y--)
+			{
+				double w, s;
+				if (x == n && y == m)
+				{
+					w = 1.0;
+					s = 0.0;
+				} else
+				{
+					w = 0.0;
+					s = 0.0;
+
+					// Correct (matching) characters or substitution error, from (x + 1, y + 1)
+					if (x < n && y < m
+							&& ((d[below + y + 1] == d[row + y] && s1.charAt(x) == s2.charAt(y)) || d[below + y + 1] == d[row + y] + 1))
+					{
+						w += prevCount[y + 1];
+						s += prevCount[y + 1] * (prevMean[y + 1] + 1.0);
+					}
+
+					// Insertion error, from (x + 1, y)
+					if (x < n && d[below + y] == d[row + y] + 1)
+					{
+						w += prevCount[y];
+						s += prevCount[y] * (prevMean[y] + 1.0);
+					}
+
+					// Deletion error, from (x, y + 1)
+					if (y < m && d[row + y + 1] == d[row + y] + 1)
+					{
+						w += count[y + 1];
+						s += count[y + 1] * (mean[y + 1] + 1.0);
+					}
+				}
+				count[y] = w;
+				mean[y] = w > 0.0 ? s / w : 0.0;
+				if (w > max)
+					max = w;
+			}
+
+			if (max > 0.0)
+				for (int y = 0; y < cols; y++)
+					count[y] /= max;
+
+			double[] t = prevCount;
+			prevCount = count;
+			count = t;
+			t = prevMean;
+			prevMean = mean;
+			mean = t;
+		}
+
+		return prevMean[0];
 	}
 
 	/**
@@ -23,7 +23,7 @@ public class MSD2
 
 
 	static final int     MAX_ALIGNMENT_COUNT   = 200;
-	static final boolean OUTPUT_PURGE_MESSAGES = true;
+	static final long    ALIGNMENT_SAMPLE_SEED = 20040105L;
 
 
 	//-------------------------------------------------------------------------
@@ -53,34 +53,159 @@ public class MSD2
 	}
 
 
+	/**
+	 * An MSDCollection whose elements are integer tokens (characters, code
+	 * points, or word IDs).  Two elements are the same if their tokens are
+	 * equal, and a transposition costs 1 (if allowed).  The MSD algorithm
+	 * compares the token arrays directly, instead of calling
+	 * getItemDistance() and getTransposedDistance() for every cell, so an
+	 * implementation must not give those methods other costs (the token
+	 * collections here make them final).
+	 */
+	public static interface TokenCollection extends MSDCollection
+	{
+		public int[]   getPresentedTokens();
+		public int[]   getTranscribedTokens();
+		public boolean getAllowTransposes();
+	}
+
+
+	/**
+	 * An MSDCollection whose substitutions have graded costs, for use with
+	 * {@link WeightedMSD}.  Substituting presented element p for transcribed
+	 * element t costs getItemCost(p, t), from 0 (the same element) to 1 (as
+	 * different as can be).  Insertions and deletions cost 1, and
+	 * transpositions cost getTransposedDistance(), as in the MSD.<p>
+	 *
+	 * getItemDistance() still gives the unit costs, so a WeightedCollection
+	 * can be given to MSD2 as well.
+	 */
+	public static interface WeightedCollection extends MSDCollection
+	{
+		public double getItemCost(int p, int t);
+	}
+
+
+	/**
+	 * A table that assigns a distinct integer ID to each distinct word.
+	 * Word-level collections that share a table can compare words by ID.
+	 * The table is thread-safe.
+	 */
+	public static class SymbolTable
+	{
+		private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		private final ArrayList<String> words = new ArrayList<String>();
+
+		/**
+		 * Returns the ID of the given word, assigning a new one if necessary.
+		 */
+		public synchronized int intern(String word)
+		{
+			Integer id = ids.get(word);
+			if(id == null)
+			{
+				id = words.size();
+				ids.put(word, id);
+				words.add(word);
+			}
+			return id;
+		}
+
+		/**
+		 * Returns the word with the given ID.
+		 */
+		public synchronized String getWord(int id)
+		{
+			return words.get(id);
+		}
+
+		/**
+		 * Returns the number of distinct words in the table.
+		 */
+		public synchronized int size()
+		{
+			return words.size();
+		}
+	}
+
+
 	//----------------------------------------------------------
 	// Here follow some useful implementations of MSDCollection
 	//----------------------------------------------------------
 
+	// single-character Strings for the ASCII characters (so that
+	// getPresentedItem() and getTranscribedItem() don't allocate)
+	private static final String[] ASCII_ITEMS = new String[128];
+	static
+	{
+		for(char c = 0; c < ASCII_ITEMS.length; c++)
+			ASCII_ITEMS[c] = String.valueOf(c);
+	}
+
+	private static String charItem(char c)
+	{
+		return c < ASCII_ITEMS.length ? ASCII_ITEMS[c] : String.valueOf(c);
+	}
+
+	private static int[] charTokens(String s)
+	{
+		int[] tokens = new int[s.length()];
+		for(int i = 0; i < tokens.length; i++)
+			tokens[i] = s.charAt(i);
+		return tokens;
+	}
+
+	private static int transposedTokenDistance(int[] P, int[] T, int p, int t)
+	{
+		if(p < 1 || t < 1)
+			return MSDCollection.Infinity;
+		if(P[p-1] == T[t] && P[p] == T[t-1])
+			return 1;
+		else
+			return MSDCollection.Infinity;
+	}
+
 	/**
 	 * An MSDCollection where the presented and transcribed text strings are
 	 * simple Java Strings, and the MSD compares the individual characters
 	 * within the strings.
 	 */
-	public static class TwoStringCollection implements MSDCollection
+	public static class TwoStringCollection implements TokenCollection
 	{
 		String P;
 		String T;
 		boolean AllowTransposes = false;
 
+		int[] PT;   // the characters of P and T, as tokens
+		int[] TT;
+
 		public TwoStringCollection(String PresentedText, String TranscribedText)
+		{
+			this(PresentedText, TranscribedText, false);
+		}
+
+		public TwoStringCollection(String PresentedText,
+				String TranscribedText,
+				boolean transposes)
 		{
 			P = PresentedText;
 			T = TranscribedText;
+			AllowTransposes = transposes;
+			PT = charTokens(P);
+			TT = charTokens(T);
 		}
 
-		public TwoStringCollection(String PresentedText,
+		// the presented tokens have been computed already (see PresentedText)
+		TwoStringCollection(String PresentedText,
+				int[] PresentedTokens,
 				String TranscribedText,
 				boolean transposes)
 		{
 			P = PresentedText;
 			T = TranscribedText;
 			AllowTransposes = transposes;
+			PT = PresentedTokens;
+			TT = charTokens(T);
 		}
 
 		//----------------------------------
@@ -94,7 +219,7 @@ public class MSD2
 
 		public String getPresentedItem(int index)
 		{
-			return "" + P.charAt(index);
+			return charItem(P.charAt(index));
 		}
 
 		public int getTranscribedSize()
@@ -104,36 +229,167 @@ public class MSD2
 
 		public String getTranscribedItem(int index)
 		{
-			return "" + T.charAt(index);
+			return charItem(T.charAt(index));
 		}
 
-		public int getItemDistance(int p, int t)
+		public final int getItemDistance(int p, int t)
 		{
-			char Pchar = P.charAt(p);
-			char Tchar = T.charAt(t);
-
-			if(Pchar == Tchar)
+			if(PT[p] == TT[t])
 				return 0;
 			else
 				return 1;
 		}
 
-		public int getTransposedDistance(int p, int t)
+		public final int getTransposedDistance(int p, int t)
 		{
-			if(!AllowTransposes || p < 1 || t < 1)
+			if(!AllowTransposes)
 				return Infinity;
 			else
-			{
-				char p1 = P.charAt(p-1);
-				char p2 = P.charAt(p);
-				char t1 = T.charAt(t-1);
-				char t2 = T.charAt(t);
+				return transposedTokenDistance(PT, TT, p, t);
+		}
 
-				if(p1 == t2 && p2 == t1)
-					return 1;
-				else
-					return Infinity;
+		public int[] getPresentedTokens()
+		{
+			return PT;
+		}
+
+		public int[] getTranscribedTokens()
+		{
+			return TT;
+		}
+
+		public boolean getAllowTransposes()
+		{
+			return AllowTransposes;
+		}
+	}
+
+
+	/**
+	 * A character-level {@link WeightedCollection} whose substitution costs
+	 * come from the geometry of a keyboard layout (see
+	 * {@link KeyboardLayout#getCosts}): a character entered instead of its
+	 * neighbour on the keyboard costs less than one from across the keyboard.
+	 * The cost of a cell is a single table lookup.
+	 */
+	public static class LayoutCollection extends TwoStringCollection
+			implements WeightedCollection
+	{
+		private final double[] cost;
+
+		public LayoutCollection(String PresentedText,
+				String TranscribedText,
+				boolean transposes,
+				KeyboardLayout.Costs costs)
+		{
+			super(PresentedText, TranscribedText, transposes);
+			cost = costs.cost;
+		}
+
+		public double getItemCost(int p, int t)
+		{
+			int a = PT[p], b = TT[t];
+			if(a == b)
+				return 0.0;
+			if((a | b) >= KeyboardLayout.TABLE_SIZE)
+				return 1.0;
+			return cost[a * KeyboardLayout.TABLE_SIZE + b];
+		}
+	}
+
+
+	/**
+	 * An MSDCollection where the presented and transcribed text strings are
+	 * Java Strings, and the MSD compares the Unicode code points within the
+	 * strings (so a character outside the Basic Multilingual Plane is one
+	 * element, not two).
+	 */
+	public static class CodePointCollection implements TokenCollection
+	{
+		int[] PT;   // the code points of the presented and transcribed text
+		int[] TT;
+		boolean AllowTransposes = false;
+
+		public CodePointCollection(String PresentedText,
+				String TranscribedText,
+				boolean transposes)
+		{
+			PT = codePoints(PresentedText);
+			TT = codePoints(TranscribedText);
+			AllowTransposes = transposes;
+		}
+
+		private static int[] codePoints(String s)
+		{
+			int[] tokens = new int[s.codePointCount(0, s.length())];
+			for(int i = 0, k = 0; i < s.length(); k++)
+			{
+				tokens[k] = s.codePointAt(i);
+				i += Character.charCount(tokens[k]);
 			}
+			return tokens;
+		}
+
+		private static String item(int codePoint)
+		{
+			if(codePoint < ASCII_ITEMS.length)
+				return ASCII_ITEMS[codePoint];
+			return new String(Character.toChars(codePoint));
+		}
+
+		//----------------------------------
+		// implement the required interface
+		//----------------------------------
+
+		public int getPresentedSize()
+		{
+			return PT.length;
+		}
+
+		public String getPresentedItem(int index)
+		{
+			return item(PT[index]);
+		}
+
+		public int getTranscribedSize()
+		{
+			return TT.length;
+		}
+
+		public String getTranscribedItem(int index)
+		{
+			return item(TT[index]);
+		}
+
+		public final int getItemDistance(int p, int t)
+		{
+			if(PT[p] == TT[t])
+				return 0;
+			else
+				return 1;
+		}
+
+		public final int getTransposedDistance(int p, int t)
+		{
+			if(!AllowTransposes)
+				return Infinity;
+			else
+				return transposedTokenDistance(PT, TT, p, t);
+		}
+
+		public int[] getPresentedTokens()
+		{
+			return PT;
+		}
+
+		public int[] getTranscribedTokens()
+		{
+			return TT;
+		}
+
+		public boolean getAllowTransposes()
+		{
+			return AllowTransposes;
 		}
 	}
 
@@ -142,27 +398,69 @@ public class MSD2
 	 * An MSDCollection object where the presented and transcribed texts are
 	 * Vectors of Strings (viz. a list of words) where the individual elements
 	 * considered in the MSD are the whole strings.  This is useful for
-	 * calculating the word-level MSD.
+	 * calculating the word-level MSD.<p>
+	 *
+	 * The words are interned in a {@link MSD2.SymbolTable} when the collection
+	 * is created, so the MSD compares word IDs rather than Strings.  Each
+	 * collection has a table of its own unless one is given to the
+	 * constructor; collections whose IDs are to be compared with one another
+	 * (e.g., through a {@link MSD2.WordDistanceCache}) must share one.
 	 */
-	public static class WordCollection implements MSDCollection
+	public static class WordCollection implements TokenCollection
 	{
-		Vector<String> P;
-		Vector<String> T;
+		String[] P;
+		String[] T;
 		boolean AllowTransposes = false;
 
+		int[] PT;   // the word IDs of P and T
+		int[] TT;
+
 		public WordCollection(Vector<String> PresentedData, Vector<String> TranscribedData)
 		{
-			P = PresentedData;
-			T = TranscribedData;
+			this(PresentedData, TranscribedData, false);
 		}
 
 		public WordCollection(Vector<String> PresentedData,
 				Vector<String> TranscribedData,
 				boolean transposes)
+		{
+			this(PresentedData.toArray(new String[PresentedData.size()]),
+					TranscribedData.toArray(new String[TranscribedData.size()]),
+					transposes, new SymbolTable());
+		}
+
+		public WordCollection(String[] PresentedData,
+				String[] TranscribedData,
+				boolean transposes,
+				SymbolTable symbols)
+		{
+			P = PresentedData;
+			T = TranscribedData;
+			AllowTransposes = transposes;
+			PT = intern(P, symbols);
+			TT = intern(T, symbols);
+		}
+
+		// the word IDs have been assigned already (see PresentedText)
+		WordCollection(String[] PresentedData,
+				int[] PresentedIDs,
+				String[] TranscribedData,
+				int[] TranscribedIDs,
+				boolean transposes)
 		{
 			P = PresentedData;
 			T = TranscribedData;
 			AllowTransposes = transposes;
+			PT = PresentedIDs;
+			TT = TranscribedIDs;
+		}
+
+		private static int[] intern(String[] words, SymbolTable symbols)
+		{
+			int[] ids = new int[words.length];
+			for(int i = 0; i < words.length; i++)
+				ids[i] = symbols.intern(words[i]);
+			return ids;
 		}
 
 		//----------------------------------
@@ -171,51 +469,152 @@ public class MSD2
 
 		public int getPresentedSize()
 		{
-			return P.size();
+			return P.length;
 		}
 
 		public String getPresentedItem(int index)
 		{
-			return P.get(index);
+			return P[index];
 		}
 
 		public int getTranscribedSize()
 		{
-			return T.size();
+			return T.length;
 		}
 
 		public String getTranscribedItem(int index)
 		{
-			return T.get(index);
+			return T[index];
 		}
 
-		public int getItemDistance(int p, int t)
+		public final int getItemDistance(int p, int t)
 		{
-			String Pstring = P.get(p);
-			String Tstring = T.get(t);
-
-			if(Pstring.equals(Tstring))
+			if(PT[p] == TT[t])
 				return 0;
 			else
 				return 1;
 		}
 
-		public int getTransposedDistance(int p, int t)
+		public final int getTransposedDistance(int p, int t)
 		{
-			if(!AllowTransposes || p < 0 || t < 0)
+			if(!AllowTransposes)
 				return Infinity;
 			else
+				return transposedTokenDistance(PT, TT, p, t);
+		}
+
+		public int[] getPresentedTokens()
+		{
+			return PT;
+		}
+
+		public int[] getTranscribedTokens()
+		{
+			return TT;
+		}
+
+		public boolean getAllowTransposes()
+		{
+			return AllowTransposes;
+		}
+	}
+
+
+	/**
+	 * The normalized character-level distances between words, remembered by
+	 * word ID.  The distance between two words is their character MSD over
+	 * the length of the longer word (see MSD.getErrorRate()), from 0 to 1.<p>
+	 *
+	 * Each distinct pair of words is compared once, however many phrases it
+	 * appears in, so one cache should be used for a whole analysis run.  The
+	 * word IDs are those of the cache's {@link MSD2.SymbolTable}.  The cache
+	 * is thread-safe.
+	 */
+	public static class WordDistanceCache
+	{
+		private final SymbolTable symbols;
+		private final HashMap<Long, Double> distances = new HashMap<Long, Double>();
+
+		public WordDistanceCache()
+		{
+			this(new SymbolTable());
+		}
+
+		public WordDistanceCache(SymbolTable symbolTable)
+		{
+			symbols = symbolTable;
+		}
+
+		/**
+		 * Returns the table that assigns the word IDs.
+		 */
+		public SymbolTable getSymbolTable()
+		{
+			return symbols;
+		}
+
+		/**
+		 * Returns the normalized character distance between two words, given
+		 * their IDs.
+		 */
+		public double getDistance(int a, int b)
+		{
+			if(a == b)
+				return 0.0;
+
+			// the distance is symmetric, so each pair is stored once
+			long key = a < b ? ((long)a << 32) | b : ((long)b << 32) | a;
+			synchronized(this)
 			{
-				String p1 = P.get(p-1);
-				String p2 = P.get(p);
-				String t1 = T.get(t-1);
-				String t2 = T.get(t);
+				Double d = distances.get(key);
+				if(d != null)
+					return d;
+			}
 
-				if(p1.equals(t2) && p2.equals(t1))
-					return 1;
-				else
-					return Infinity;
+			String s = symbols.getWord(a), t = symbols.getWord(b);
+			double d = (double)BitParallelMSD.getMSD(s, t) / Math.max(Math.max(s.length(), t.length()), 1);
+			synchronized(this)
+			{
+				distances.put(key, d);
 			}
+			return d;
+		}
+
+		/**
+		 * Returns the number of word pairs compared so far.
+		 */
+		public synchronized int size()
+		{
+			return distances.size();
+		}
+	}
+
+
+	/**
+	 * A word-level {@link WeightedCollection}: substituting one word for
+	 * another costs the normalized character distance between them (see
+	 * {@link MSD2.WordDistanceCache}), so a misspelled word costs less than
+	 * an unrelated one.  The word IDs and distances come from the cache given.
+	 */
+	public static class HierarchicalWordCollection extends WordCollection
+			implements WeightedCollection
+	{
+		private final WordDistanceCache cache;
+
+		public HierarchicalWordCollection(String[] PresentedData,
+				String[] TranscribedData,
+				boolean transposes,
+				WordDistanceCache distances)
+		{
+			super(PresentedData, TranscribedData, transposes, distances.getSymbolTable());
+			cache = distances;
+		}
+
+		public double getItemCost(int p, int t)
+		{
+			if(PT[p] == TT[t])
+				return 0.0;
+			return cache.getDistance(PT[p], TT[t]);
 		}
 	}
 
@@ -226,6 +625,33 @@ public class MSD2
 
 	MSDCollection C;
 
+	int maxAlignments;   // the most alignments to keep (see findAlignments)
+
+	// for a TokenCollection, the tokens are compared directly
+	int[] PT;            // presented tokens (null for other collections)
+	int[] TT;            // transcribed tokens
+	boolean transposes;  // whether the TokenCollection allows transpositions
+
+
+	// one reusable workspace per thread (see forThread)
+	private static final ThreadLocal<MSD2> workspace = new ThreadLocal<MSD2>()
+	{
+		@Override
+		protected MSD2 initialValue()
+		{
+			return new MSD2();
+		}
+	};
+
+	/**
+	 * This constructor creates an empty MSD2 workspace (the MSD of two
+	 * empty texts).  Use {@link #reset} to calculate the MSD of a
+	 * collection.
+	 */
+	public MSD2()
+	{
+		this(new TwoStringCollection("", "", false));
+	}
 
 	/**
 	 * This constructor takes an instance of a {@link MSD2.MSDCollection}
@@ -237,9 +663,148 @@ public class MSD2
 	 */
 	public MSD2(MSDCollection c)
 	{
-		C = c;
+		this(c, MAX_ALIGNMENT_COUNT);
+	}
+
+	/**
+	 * This constructor takes an instance of a {@link MSD2.MSDCollection}
+	 * object, and calculates the Minimum String Distance, keeping at most
+	 * the given number of alignments.  If there are more optimal alignments
+	 * than that, a reproducible random sample of them is kept.
+	 *
+	 * @see MSD2.MSDCollection
+	 * @param c is the source of data for the MSD algorithm
+	 *        (a {@link MSD2.MSDCollection} object)
+	 * @param maxAlignmentsArg the maximum number of alignments to keep
+	 */
+	public MSD2(MSDCollection c, int maxAlignmentsArg)
+	{
+		reset(c, maxAlignmentsArg);
+	}
+
+	/**
+	 * This function re-points this object at a new collection, and
+	 * calculates its Minimum String Distance, keeping at most
+	 * {@link #MAX_ALIGNMENT_COUNT} alignments.  See {@link #reset(MSD2.MSDCollection, int)}.
+	 *
+	 * @param c is the source of data for the MSD algorithm
+	 *        (a {@link MSD2.MSDCollection} object)
+	 * @return this MSD2 object
+	 */
+	public MSD2 reset(MSDCollection c)
+	{
+		return reset(c, MAX_ALIGNMENT_COUNT);
+	}
+
+	/**
+	 * This function re-points this object at a new collection, and
+	 * calculates its Minimum String Distance, keeping at most the given
+	 * number of alignments.<p>
+	 *
+	 * The D matrix and the working storage of the alignment search are
+	 * kept, and grow only when a larger collection is seen, so scoring many
+	 * pairs with the same object allocates little more than the alignments
+	 * themselves.  The alignments and counts obtained before the reset
+	 * refer to this object's collection, so they must not be used after it.
+	 *
+	 * @param c is the source of data for the MSD algorithm
+	 *        (a {@link MSD2.MSDCollection} object)
+	 * @param maxAlignmentsArg the maximum number of alignments to keep
+	 * @return this MSD2 object
+	 */
+	public MSD2 reset(MSDCollection c, int maxAlignmentsArg)
+	{
+		setCollection(c);
+		maxAlignments = Math.max(1, maxAlignmentsArg);
 		calculateD();
 		findAlignments();
+		return this;
+	}
+
+	/*
+	 * Re-points this object at a new collection, and calculates only the D
+	 * matrix, for callers that need only the distance and the expected
+	 * counts (such as ErrorMatrix).  The alignments are not found, so the
+	 * alignment vector is left empty.
+	 */
+	MSD2 resetMatrix(MSDCollection c)
+	{
+		setCollection(c);
+		calculateD();
+		A = new Vector<Alignment>();
+		sampled = true;   // the counts come from the matrix
+		return this;
+	}
+
+	/**
+	 * This function returns an MSD2 workspace owned by the calling thread,
+	 * for callers that score many pairs one at a time.  For example:
+	 * <pre>
+	 *    int msd = MSD2.forThread().reset(collection).getMSD();
+	 * </pre>
+	 * The object is reused by the next call on the same thread, so do not
+	 * hold on to it (or to its alignments).
+	 *
+	 * @return the calling thread's MSD2 object
+	 */
+	public static MSD2 forThread()
+	{
+		return workspace.get();
+	}
+
+	/*
+	 * The linear-space constructor (see linearSpace).  The D matrix is not
+	 * kept, and A holds a single alignment.
+	 */
+	private MSD2(MSDCollection c, boolean linearSpace)
+	{
+		setCollection(c);
+		maxAlignments = 1;
+
+		HirschbergMSD h = new HirschbergMSD(this);
+		A = new Vector<Alignment>();
+		A.add(new Alignment(h.align()));
+		distance = h.getDistance();
+		sampled = true;
+		meanLength = rollingMeanAlignmentLength();
+	}
+
+	/**
+	 * This function calculates the MSD and one optimal alignment, using
+	 * memory proportional to the sizes of the presented and transcribed
+	 * texts rather than their product (see {@link HirschbergMSD}).  This is
+	 * intended for very long texts, such as composition tasks.<p>
+	 *
+	 * The D matrix is not kept, so {@link #printMSDMatrix} and
+	 * {@link Alignment#printAlignmentMatrix} are not available, and
+	 * {@link #getOptimalAlignmentCount} returns -1.  The other functions,
+	 * including those of the {@link Alignment}, work as usual.  The average
+	 * alignment length (and so {@link #getErrorRateNew}) is that of all the
+	 * optimal alignments, not just the one kept.
+	 *
+	 * @param c is the source of data for the MSD algorithm
+	 *        (a {@link MSD2.MSDCollection} object)
+	 * @return an MSD2 object holding one optimal alignment
+	 */
+	public static MSD2 linearSpace(MSDCollection c)
+	{
+		return new MSD2(c, true);
+	}
+
+	private void setCollection(MSDCollection c)
+	{
+		C = c;
+		PT = null;
+		TT = null;
+		transposes = false;
+		pathCounted = false;
+		if(c instanceof TokenCollection)
+		{
+			TokenCollection tc = (TokenCollection)c;
+			PT = tc.getPresentedTokens();
+			TT = tc.getTranscribedTokens();
+			transposes = tc.getAllowTransposes();
+		}
 	}
 
 
@@ -392,7 +957,12 @@ public class MSD2
 	// deal with calculating the D matrix.
 	//---------------------------------------------------------------------
 
-	int[][] D;   // the MSD 'D' matrix
+	int[] D;       // the MSD 'D' matrix, row by row (null in linear-space mode)
+	int rows;      // the rows of D in use: getPresentedSize() + 1
+	int width;     // the columns of D in use: getTranscribedSize() + 1
+	int distance;  // the MSD, when D is not kept
+	private int[] rollingRows;  // the working rows of rollingMSD
+	private double meanLength;  // the average alignment length, when D is not kept
 
 
 	/**
@@ -404,9 +974,28 @@ public class MSD2
 	 */
 	public int getMSD()
 	{
-		int x = D.length;
-		int y = D[0].length;
-		return D[x-1][y-1];
+		if(D == null)
+			return distance;
+
+		return D[rows * width - 1];
+	}
+
+	/**
+	 * This function returns an entry of the MSD matrix: the MSD of the first
+	 * i presented elements and the first j transcribed elements.
+	 *
+	 * @param i the row, from 0 to getPresentedSize()
+	 * @param j the column, from 0 to getTranscribedSize()
+	 * @return the entry of the D matrix
+	 */
+	public int getMatrixEntry(int i, int j)
+	{
+		if(D == null)
+			throw new IllegalStateException("the MSD matrix is not kept in linear-space mode");
+		if(i < 0 || i >= rows || j < 0 || j >= width)
+			throw new IndexOutOfBoundsException("(" + i + "," + j + ") of a "
+					+ rows + " x " + width + " matrix");
+		return D[i * width + j];
 	}
 	
 	/**
@@ -426,33 +1015,269 @@ public class MSD2
 	{
 		int i, j;
 
-		D = new int[getPresentedSize() + 1][getTranscribedSize() + 1];
+		rows = getPresentedSize() + 1;
+		width = getTranscribedSize() + 1;
+		if(D == null || D.length < rows * width)
+			D = new int[rows * width];
+
+		for(i = 0; i < rows; i++)
+			D[i * width] = i;
+
+		for(j = 0; j < width; j++)
+			D[j] = j;
+
+		if(!WavefrontMSD.worthwhile(getPresentedSize(), getTranscribedSize()))
+		{
+			if(PT != null)
+				fillTokenD(1, rows, 1, width);
+			else
+				fillD(1, rows, 1, width);
+			return;
+		}
 
-		for(i = 0; i <= getPresentedSize(); i++)
-			D[i][0] = i;
+		// long texts (e.g., paragraphs) are filled on several processors
+		new WavefrontMSD(getPresentedSize(), getTranscribedSize())
+		{
+			@Override
+			void fillTile(int i0, int i1, int j0, int j1)
+			{
+				if(PT != null)
+					fillTokenD(i0, i1, j0, j1);
+				else
+					fillD(i0, i1, j0, j1);
+			}
+		}.fill();
+	}
 
-		for(j = 0; j <= getTranscribedSize(); j++)
-			D[0][j] = j;
+	/*
+	 * Fill rows i0 to i1 - 1, columns j0 to j1 - 1 of the D matrix.
+	 */
+	private void fillD(int i0, int i1, int j0, int j1)
+	{
+		int[] D = this.D;
+		int w = width;
 
-		for(i = 1; i <= getPresentedSize(); i++)
-			for(j = 1; j <= getTranscribedSize(); j++)
+		for(int i = i0; i < i1; i++)
+		{
+			int row = i * w, above = row - w;
+			for(int j = j0; j < j1; j++)
 			{
 				int a, b, c, m;
-				a = D[i-1][j] +1;
-				b = D[i][j-1] +1;
-				c = D[i-1][j-1] + C.getItemDistance(i-1, j-1);
+				a = D[above + j] +1;
+				b = D[row + j-1] +1;
+				c = D[above + j-1] + C.getItemDistance(i-1, j-1);
 
 				m = Math.min(a,b);
 				m = Math.min(m,c);
 
 				if((i-2 >= 0) && (j-2 >= 0))
 				{
-					int t = D[i-2][j-2] + C.getTransposedDistance(i-1, j-1);
+					int t = D[above - w + j-2] + C.getTransposedDistance(i-1, j-1);
 					m = Math.min(m,t);
 				}
 
-				D[i][j] = m;
+				D[row + j] = m;
 			}
+		}
+	}
+
+	/*
+	 * The same calculation as fillD(), for a TokenCollection: the tokens
+	 * are compared directly.
+	 */
+	private void fillTokenD(int i0, int i1, int j0, int j1)
+	{
+		int[] D = this.D;
+		int w = width;
+
+		for(int i = i0; i < i1; i++)
+		{
+			int p = PT[i-1];
+			int row = i * w, above = row - w;
+			for(int j = j0; j < j1; j++)
+			{
+				int t = TT[j-1];
+				int m = Math.min(D[above + j], D[row + j-1]) + 1;
+				m = Math.min(m, D[above + j-1] + (p == t ? 0 : 1));
+
+				if(transposes && i >= 2 && j >= 2 && p == TT[j-2] && PT[i-2] == t)
+					m = Math.min(m, D[above - w + j-2] + 1);
+
+				D[row + j] = m;
+			}
+		}
+	}
+
+	/*
+	 * The MSD of a collection, from three rolling rows of the D matrix
+	 * rather than the whole matrix, and without the alignments (for callers
+	 * that need only the distance, such as MSDBatch).  The rows are kept in
+	 * this object for the next call; nothing else about it changes.
+	 */
+	int rollingMSD(MSDCollection c)
+	{
+		int n = c.getPresentedSize();
+		int w = c.getTranscribedSize() + 1;
+		if(rollingRows == null || rollingRows.length < 3 * w)
+			rollingRows = new int[3 * w];
+		int[] R = rollingRows;
+
+		int[] P = null, T = null;
+		boolean tr = false;
+		if(c instanceof TokenCollection)
+		{
+			TokenCollection tc = (TokenCollection)c;
+			P = tc.getPresentedTokens();
+			T = tc.getTranscribedTokens();
+			tr = tc.getAllowTransposes();
+		}
+
+		for(int j = 0; j < w; j++)
+			R[j] = j;
+
+		for(int i = 1; i <= n; i++)
+		{
+			// row i, row i-1 and (from i = 2) row i-2
+			int row = (i % 3) * w, above = ((i - 1) % 3) * w, twoAbove = ((i + 1) % 3) * w;
+			R[row] = i;
+			if(P != null)
+			{
+				int p = P[i-1];
+				for(int j = 1; j < w; j++)
+				{
+					int t = T[j-1];
+					int m = Math.min(R[above + j], R[row + j-1]) + 1;
+					m = Math.min(m, R[above + j-1] + (p == t ? 0 : 1));
+
+					if(tr && i >= 2 && j >= 2 && p == T[j-2] && P[i-2] == t)
+						m = Math.min(m, R[twoAbove + j-2] + 1);
+
+					R[row + j] = m;
+				}
+			}
+			else
+			{
+				for(int j = 1; j < w; j++)
+				{
+					int m = Math.min(R[above + j], R[row + j-1]) + 1;
+					m = Math.min(m, R[above + j-1] + c.getItemDistance(i-1, j-1));
+
+					if(i >= 2 && j >= 2)
+						m = Math.min(m, R[twoAbove + j-2] + c.getTransposedDistance(i-1, j-1));
+
+					R[row + j] = m;
+				}
+			}
+		}
+		return R[(n % 3) * w + w - 1];
+	}
+
+	/*
+	 * The average length of the optimal alignments (a transposition has
+	 * length 2, as in the explanation), from three rolling rows of the D
+	 * matrix.  Every optimal path to a cell extends an optimal path to one
+	 * of its predecessors, so each cell keeps the log of the number of
+	 * optimal paths reaching it and their mean length, and a cell's mean is
+	 * that of its predecessors' means (plus the step), weighted by their
+	 * path counts.  The logs keep the counts of long texts from overflowing.
+	 */
+	private double rollingMeanAlignmentLength()
+	{
+		int n = getPresentedSize();
+		int w = getTranscribedSize() + 1;
+		int[] R = new int[3 * w];
+		double[] F = new double[3 * w];   // log of the number of optimal paths
+		double[] L = new double[3 * w];   // the mean length of those paths
+
+		for(int j = 0; j < w; j++)
+		{
+			R[j] = j;
+			F[j] = 0.0;
+			L[j] = j;
+		}
+
+		for(int i = 1; i <= n; i++)
+		{
+			// row i, row i-1 and (from i = 2) row i-2
+			int row = (i % 3) * w, above = ((i - 1) % 3) * w, twoAbove = ((i + 1) % 3) * w;
+			R[row] = i;
+			F[row] = 0.0;
+			L[row] = i;
+			for(int j = 1; j < w; j++)
+			{
+				int diagonal = R[above + j-1] + itemDistance(i-1, j-1);
+				int m = Math.min(Math.min(R[above + j], R[row + j-1]) + 1, diagonal);
+				int transposed = MSDCollection.Infinity;
+				if(i >= 2 && j >= 2)
+				{
+					transposed = R[twoAbove + j-2] + transposedDistance(i-1, j-1);
+					m = Math.min(m, transposed);
+				}
+				R[row + j] = m;
+
+				double f = Double.NEGATIVE_INFINITY, len = 0.0;
+				for(int op = 0; op < 4; op++)
+				{
+					int u, steps;
+					if(op == 0 && diagonal == m)
+					{
+						u = above + j-1;
+						steps = 1;
+					}
+					else if(op == 1 && R[row + j-1] + 1 == m)
+					{
+						u = row + j-1;
+						steps = 1;
+					}
+					else if(op == 2 && R[above + j] + 1 == m)
+					{
+						u = above + j;
+						steps = 1;
+					}
+					else if(op == 3 && transposed == m)
+					{
+						u = twoAbove + j-2;
+						steps = 2;
+					}
+					else
+						continue;
+
+					if(f == Double.NEGATIVE_INFINITY)
+					{
+						f = F[u];
+						len = L[u] + steps;
+					}
+					else
+					{
+						double top = Math.max(f, F[u]);
+						double a = Math.exp(f - top), b = Math.exp(F[u] - top);
+						len = (a * len + b * (L[u] + steps)) / (a + b);
+						f = top + Math.log(a + b);
+					}
+				}
+				F[row + j] = f;
+				L[row + j] = len;
+			}
+		}
+		return L[(n % 3) * w + w - 1];
+	}
+
+	/*
+	 * These give the same results as C.getItemDistance() and
+	 * C.getTransposedDistance(), comparing tokens directly when possible.
+	 */
+	int itemDistance(int p, int t)
+	{
+		if(PT != null)
+			return PT[p] == TT[t] ? 0 : 1;
+		return C.getItemDistance(p, t);
+	}
+
+	int transposedDistance(int p, int t)
+	{
+		if(PT != null)
+			return transposes ? transposedTokenDistance(PT, TT, p, t) : MSDCollection.Infinity;
+		return C.getTransposedDistance(p, t);
 	}
 
 
@@ -466,117 +1291,140 @@ public class MSD2
 	 */
 	public class Alignment
 	{
-		String E;          // the explanation string
-
-		Vector<String> P;  // the aligned presented text (a vector of Strings)
-		Vector<String> T;  // the aligned transcribed text (a vector of Strings)
+		byte[] E;          // the explanation string, one character per byte
 
-		boolean[][] Path;  // marks the alignment path through the MSD matrix
+		// the number of insertions and deletions before every CHECKPOINT'th
+		// character of the explanation (see countBefore)
+		private static final int CHECKPOINT = 64;
+		int[] insertions;
+		int[] deletions;
 
 		public Alignment()
 		{
-			E = "";
-			Path = null;
+			E = new byte[0];
 		}
 
-		public Alignment(PlaceHolder ph)
+		public Alignment(int node)
 		{
-			E = ph.E;
-			Path = null;
+			E = explain(node);
+		}
+
+		Alignment(String explanation)
+		{
+			E = new byte[explanation.length()];
+			for(int i = 0; i < E.length; i++)
+				E[i] = (byte)explanation.charAt(i);
 		}
 
 		public String toString()
 		{
-			return E;
+			return getExplanation();
 		}
 
 
 		//-----------------------------------------------------------------------
 		// This section calculates several incidental values, including the
-		// aligned presented and transcribed text Vectors, and the Path
-		// array.
+		// aligned presented and transcribed texts, and the alignment path.
 		//
 		// The explanation string is synonymous with a unique path through the
 		// MSD 'D' matrix.  We use the explanation string to calculate the
-		// aligned presented and transcribed data.  These are Vectors containing
-		// the elements of the presented and transcribed data, that align with
-		// the explanation string (the character '-' in inserted for missing
-		// elements).  For example:
+		// aligned presented and transcribed data.  These are sequences
+		// containing the elements of the presented and transcribed data, that
+		// align with the explanation string (the character '-' in inserted for
+		// missing elements).  For example:
 		//
 		//    Presented Text:      aaa bbb  -  ddd fff ggg
 		//    Transcribed Text:    aaa  -  ccc eee ggg fff
 		//    Explanation String:   c   i   d   x   t   t
 		//
-		// The other data structure that is calculated is the path matrix.  This
-		// matrix shadows the 'D' matrix, with a boolean value for every element
-		// in D that indicates which elements in D comprise the alignment path.
+		// None of this is stored.  At position k of the explanation string, the
+		// path is at the element k - (insertions before k) of the presented
+		// text, and k - (deletions before k) of the transcribed text.  These
+		// counts are kept for every CHECKPOINT'th position, so any position is
+		// found by scanning fewer than CHECKPOINT explanation characters.
 		//-----------------------------------------------------------------------
 
-		private void calc()
+		private void calculateCheckpoints()
 		{
-			if(Path == null)
-				calculatePresentedAndTranscribed();
-		}
-
-		private void calculatePresentedAndTranscribed()
-		{
-			int pres_index  = 0,
-					trans_index = 0,
-					i;
-
-			int x = D.length;
-			int y = D[0].length;
-
-			Path = new boolean[x][y];
-			Path[x-1][y-1] = true;
+			int[] ins = new int[E.length / CHECKPOINT + 1];
+			int[] del = new int[ins.length];
+			int in = 0, de = 0;
 
-			P = new Vector<String>();
-			T = new Vector<String>();
-
-			for(i = 0; i < E.length(); i += 1)
+			for(int k = 0; k < E.length; k++)
 			{
-				String e = getExplanation(i);
-
-				x = i - pres_index;
-				y = i - trans_index;
-
-				Path[x][y] = true;
-
-				// c = correct
-				if(e.equals("c"))
+				if(k % CHECKPOINT == 0)
 				{
-					P.add(getPresentedItem(x));
-					T.add(getTranscribedItem(y));
+					ins[k / CHECKPOINT] = in;
+					del[k / CHECKPOINT] = de;
 				}
+				if(E[k] == 'i')
+					in++;
+				else if(E[k] == 'd')
+					de++;
+			}
+			if(E.length % CHECKPOINT == 0)
+			{
+				ins[ins.length - 1] = in;
+				del[del.length - 1] = de;
+			}
 
-				// i = insertion
-				else if(e.equals("i"))
-				{
-					P.add("-"); pres_index += 1;
-					T.add(getTranscribedItem(y));
-				}
+			deletions = del;
+			insertions = ins;
+		}
 
-				// d = deletion
-				else if(e.equals("d"))
-				{
-					P.add(getPresentedItem(x));
-					T.add("-"); trans_index += 1;
-				}
+		/*
+		 * Returns the number of op characters ('i' or 'd') before position
+		 * index of the explanation string.
+		 */
+		private int countBefore(byte op, int index)
+		{
+			if(index < 0 || index > E.length)
+				throw new IndexOutOfBoundsException("index " + index
+						+ ", explanation length " + E.length);
+			if(insertions == null)
+				calculateCheckpoints();
+
+			int k = index / CHECKPOINT;
+			int count = (op == 'i' ? insertions : deletions)[k];
+			for(int i = k * CHECKPOINT; i < index; i++)
+				if(E[i] == op)
+					count++;
+			return count;
+		}
 
-				// x = substitution
-				else if(e.equals("x"))
-				{
-					P.add(getPresentedItem(x));
-					T.add(getTranscribedItem(y));
-				}
 
-				// t = transposition
-				else if(e.equals("t"))
-				{
-					P.add(getPresentedItem(x));
-					T.add(getTranscribedItem(y));
-				}
-			}
+		//----------------------------------------------------------
+		// Functions for following the alignment path through the D
+		// matrix
+		//----------------------------------------------------------
+
+		/**
+		 * Returns the row of the MSD matrix (the number of presented
+		 * elements consumed) at which the given position of the alignment
+		 * path begins.  Position 0 is the top-left corner, and position
+		 * {@link #getExplanationLength} is the bottom-right corner.
+		 *
+		 * @param index a position of the explanation string, from 0 to
+		 *        getExplanationLength()
+		 * @return the row of the path at that position
+		 */
+		public int getPathPresentedIndex(int index)
+		{
+			return index - countBefore((byte)'i', index);
+		}
+
+		/**
+		 * Returns the column of the MSD matrix (the number of transcribed
+		 * elements consumed) at which the given position of the alignment
+		 * path begins.  See {@link #getPathPresentedIndex}.
+		 *
+		 * @param index a position of the explanation string, from 0 to
+		 *        getExplanationLength()
+		 * @return the column of the path at that position
+		 */
+		public int getPathTranscribedIndex(int index)
+		{
+			return index - countBefore((byte)'d', index);
 		}
 
 
@@ -591,8 +1439,7 @@ public class MSD2
 		 */
 		public int getAlignedPresentedSize()
 		{
-			calc();
-			return P.size();
+			return E.length;
 		}
 
 		/**
@@ -604,8 +1451,9 @@ public class MSD2
 		 */
 		public String getAlignedPresentedItem(int index)
 		{
-			calc();
-			return P.get(index);
+			if(E[index] == 'i')
+				return "-";
+			return getPresentedItem(getPathPresentedIndex(index));
 		}
 
 		/**
@@ -615,8 +1463,7 @@ public class MSD2
 		 */
 		public int getAlignedTranscribedSize()
 		{
-			calc();
-			return T.size();
+			return E.length;
 		}
 
 		/**
@@ -628,8 +1475,9 @@ public class MSD2
 		 */
 		public String getAlignedTranscribedItem(int index)
 		{
-			calc();
-			return P.get(index);
+			if(E[index] == 'd')
+				return "-";
+			return getTranscribedItem(getPathTranscribedIndex(index));
 		}
 
 
@@ -644,7 +1492,7 @@ public class MSD2
 		 */
 		public int getExplanationLength()
 		{
-			return E.length();
+			return E.length;
 		}
 
 		/**
@@ -662,7 +1510,10 @@ public class MSD2
 		 */
 		public String getExplanation()
 		{
-			return E;
+			char[] e = new char[E.length];
+			for(int i = 0; i < e.length; i++)
+				e[i] = (char)E[i];
+			return new String(e);
 		}
 
 		/**
@@ -683,7 +1534,7 @@ public class MSD2
 		 */
 		public String getExplanation(int index)
 		{
-			return "" + E.charAt(index);
+			return charItem((char)E[index]);
 		}
 
 
@@ -699,10 +1550,11 @@ public class MSD2
 			String temp;
 			int i, j;
 
-			calc();     // if necessary, calculate the Path array
+			if(D == null)
+				throw new IllegalStateException("the MSD matrix is not kept in linear-space mode");
 
-			int x = D.length;
-			int y = D[0].length;
+			int x = rows;
+			int y = width;
 
 			// how wide do the columns have to be to accommodate
 			// the values in the matrix?
@@ -752,8 +1604,12 @@ public class MSD2
 				System.out.println("");
 
 
-			// output the bulk of the matrix
-			int alignment_explanation_counter = 0;
+			// output the bulk of the matrix; the matrix is printed in the same
+			// order as the path is followed, so the next position of the path
+			// is the next one to be marked (the top-left corner isn't marked)
+			int alignment_explanation_counter = 1;
+			int path_x = E.length > 0 ? getPathPresentedIndex(1) : -1;
+			int path_y = E.length > 0 ? getPathTranscribedIndex(1) : -1;
 			for(j = 0; j < y; j++)
 			{
 				// transcribed text down the left-hand-side
@@ -762,15 +1618,21 @@ public class MSD2
 
 				for(i = 0; i < x; i++)
 				{
-					String entry = padleftwithspaces("" + D[i][j], spacing);
+					String entry = padleftwithspaces("" + D[i * width + j], spacing);
 
 					// if the corresponding element in A is true, then this element
 					// is part of the alignment path, so wrap it in brakets
-					if(Path[i][j] && (!(i == 0 && j == 0)) )
+					if(alignment_explanation_counter <= E.length
+							&& path_x == i && path_y == j)
 					{
 						temp += " " + entry + "("
-								+ getExplanation(alignment_explanation_counter) + ")";
+								+ getExplanation(alignment_explanation_counter - 1) + ")";
 						alignment_explanation_counter += 1;
+						if(alignment_explanation_counter <= E.length)
+						{
+							path_x = getPathPresentedIndex(alignment_explanation_counter);
+							path_y = getPathTranscribedIndex(alignment_explanation_counter);
+						}
 					}
 					else
 						temp += " " + entry + "   ";
@@ -826,12 +1688,16 @@ public class MSD2
 	}
 
 	/**
-	 * Return the average alignment length.
+	 * Return the average alignment length.  In linear-space mode this is
+	 * the average over all the optimal alignments (see {@link #linearSpace}).
 	 *
 	 * @return the average length of the alignments.
 	 */
 	public double getAverageAlignmentLength()
 	{
+		if(D == null)
+			return meanLength;
+
 		double retval = 0d;
 
 		for(int i = 0; i < getAlignmentVectorSize(); i++)
@@ -845,32 +1711,105 @@ public class MSD2
 	//-----------------------------------------------------------
 
 	/*
-	 * The purpose of this sub-class is to hold all of the data
-	 * necessary to remember where we are, as we traverse the
-	 * MSD matrix finding alignments.
+	 * The alignments are found by walking from the bottom-right corner of
+	 * the D matrix up and left to the top-left corner.  Each step of a walk
+	 * is stored as a node: the explanation character for the step, and the
+	 * node for the step that precedes it in the walk (i.e. the step that
+	 * follows it in the explanation string).  Walks that branch share all
+	 * of their earlier nodes, so no explanation string is copied while
+	 * searching.  The nodes live in these primitive arrays.
 	 */
-	private class PlaceHolder
-	{
-		int X;      // the position in the D matrix
-		int Y;
-		String E;
+	private int[]  nodeParent;   // the next node of the explanation (-1 = end)
+	private byte[] nodeOp;       // the explanation character of this node
+	private int    nodeCount;
+
+	private int[]  queue;        // the search queue of findAlignments
 
-		public PlaceHolder()
+	private long[] pathCount;    // optimal paths from (0,0) to each cell
+	private boolean pathCounted; // true if pathCount holds this matrix's counts
+	private boolean sampled;     // true if A holds a sample of the alignments
+
+	// the log path counts of getExpectedOperationCounts
+	private double[] forward, backward;
+
+	private static final byte[] OPS = { 'c', 'x', 'i', 'd', 't' };
+
+	private int newNode(int parent, byte op)
+	{
+		if(nodeCount == nodeParent.length)
 		{
-			E = "";
-			X = D.length - 1;           // bottom-right corner of D
-			Y = D[0].length - 1;
+			nodeParent = Arrays.copyOf(nodeParent, 2 * nodeCount);
+			nodeOp     = Arrays.copyOf(nodeOp, 2 * nodeCount);
 		}
+		nodeParent[nodeCount] = parent;
+		nodeOp[nodeCount] = op;
+		return nodeCount++;
+	}
+
+	/*
+	 * Builds the explanation string for the walk ending with the given node.
+	 * A transposition occupies two positions in the explanation ("tt").
+	 */
+	private byte[] explain(int node)
+	{
+		int length = 0;
+		for(int k = node; k >= 0; k = nodeParent[k])
+			length += nodeOp[k] == 't' ? 2 : 1;
 
-		public PlaceHolder(PlaceHolder ph, String e, int x, int y)
+		byte[] e = new byte[length];
+		int i = 0;
+		for(int k = node; k >= 0; k = nodeParent[k])
 		{
-			E = e + ph.E;
-			X = x; Y = y;
+			e[i++] = nodeOp[k];
+			if(nodeOp[k] == 't')
+				e[i++] = 't';
 		}
-
-		Alignment getAlignment() { return new Alignment(this); };
+		return e;
 	}
 
+	/*
+	 * Returns the cell reached by taking step OPS[op] back from (x,y), as
+	 * x * width + y, or -1 if that step is not on an optimal path.  The
+	 * steps are tried in the order of OPS.
+	 */
+	private int step(int op, int x, int y)
+	{
+		int v = x * width + y;
+		switch(op)
+		{
+			// correct (matching) characters
+			case 0:
+				if(x > 0 && y > 0 && D[v] == D[v - width - 1]
+						&& itemDistance(x-1,y-1) == 0)
+					return v - width - 1;
+				return -1;
+
+			// substitution error
+			case 1:
+				if(x > 0 && y > 0 && D[v] == D[v - width - 1] + 1)
+					return v - width - 1;
+				return -1;
+
+			// insertion error
+			case 2:
+				if(y > 0 && D[v] == D[v - 1] + 1)
+					return v - 1;
+				return -1;
+
+			// deletion error
+			case 3:
+				if(x > 0 && D[v] == D[v - width] + 1)
+					return v - width;
+				return -1;
+
+			// transposition error
+			default:
+				if((x-2 >= 0) && (y-2 >= 0)
+						&& (D[v] - D[v - 2 * width - 2] == transposedDistance(x-1, y-1)))
+					return v - 2 * width - 2;
+				return -1;
+		}
+	}
 
 	/*
 	 * This function generates a list of alignment strings, given
@@ -880,91 +1819,609 @@ public class MSD2
 	 * and find possible paths leading up and left to the top-left corner.
 	 * As we proceed through the MSD matrix, occasionally we find a location
 	 * where there are multiple possible paths to follow.  So we use a
-	 * stack to remember where we are so we can continue from that point later
-	 * without resorting to recursion.
+	 * queue to remember where we are so we can continue from that point
+	 * later without resorting to recursion.
+	 *
+	 * Certain sets of presented & transcribed text can cause the number of
+	 * alignments to grow exponentially.  This is a problem only for long
+	 * strings that are pathologically different from one another.  Every
+	 * entry in the queue leads to at least one distinct alignment, so as
+	 * soon as the finished alignments plus the queue exceed maxAlignments,
+	 * we know there are too many to keep, and a sample is taken instead
+	 * (see sampleAlignments).
 	 */
 	private void findAlignments()
 	{
 		// this is the result
 		A = new Vector<Alignment>();
+		sampled = false;
+
+		if(nodeParent == null)
+		{
+			nodeParent = new int[64];
+			nodeOp = new byte[64];
+		}
+		nodeCount = 0;
 
-		// this is a stack that we'll use to remember where we are
-		LinkedList<PlaceHolder> stack = new LinkedList<PlaceHolder>();
+		// this is a queue that we'll use to remember where we are
+		if(queue == null)
+			queue = new int[64];   // pairs of (node, cell)
+		int[] queue = this.queue;
+		int head = 0, tail = 0;
 
-		// prime the stack with the start location
-		// NB!  PlaceHolder() constructer defaults to bottom-right corner of D
-		stack.addFirst(new PlaceHolder());
+		// prime the queue with the bottom-right corner of D
+		queue[tail++] = -1;
+		queue[tail++] = rows * width - 1;
 
-		while(stack.size() > 0)
+		while(head < tail)
 		{
-			// Certain sets of presented & transcribed text can cause the
-			// number of alignments to grow exponentially.  This is a problem
-			// only for long strings that are pathologically different from
-			// one another, that are not of the same length.  When this
-			// happens we're going to delete every second alignment.  This
-			// should allow the alignment set to preserve some of its
-			// descriptiveness, while at the same time limiting the growth to
-			// a more managable quantity.
-			if(stack.size() > MAX_ALIGNMENT_COUNT)
+			if(A.size() + (tail - head) / 2 > maxAlignments)
+			{
+				sampleAlignments();
+				return;
+			}
+
+			// get the oldest element of the queue
+			int node = queue[head++];
+			int cell = queue[head++];
+
+			// the current position (x,y)
+			int x = cell / width;
+			int y = cell % width;
+
+			// if we've arrived at the top-left corner, we're done, so store
+			// the alignment path
+			if(x == 0 && y == 0)
 			{
-				if(OUTPUT_PURGE_MESSAGES)
-					System.err.println("'> " + MAX_ALIGNMENT_COUNT + "' in MSD, purging!");
+				A.add(new Alignment(node));
+				continue;
+			}
 
-				ListIterator<PlaceHolder> i = stack.listIterator();
+			for(int op = 0; op < OPS.length; op++)
+			{
+				int next = step(op, x, y);
+				if(next < 0)
+					continue;
 
-				while(i.hasNext())
+				if(tail + 2 > queue.length)
 				{
-					i.next();       // skip one
+					// reclaim the consumed part of the queue, or grow it
+					if(head >= queue.length / 2)
+					{
+						System.arraycopy(queue, head, queue, 0, tail - head);
+						tail -= head;
+						head = 0;
+					}
+					else
+						queue = this.queue = Arrays.copyOf(queue, 2 * queue.length);
+				}
+				queue[tail++] = newNode(node, OPS[op]);
+				queue[tail++] = next;
+			}
+		}  // while
+	}
+
+	/*
+	 * Counts the optimal paths from the top-left corner to every cell of D
+	 * (equivalently, the walks from each cell back to the top-left corner).
+	 * The counts saturate at Long.MAX_VALUE.
+	 */
+	private long[] getPathCounts()
+	{
+		if(pathCounted)
+			return pathCount;
+
+		if(pathCount == null || pathCount.length < rows * width)
+			pathCount = new long[rows * width];
+		pathCount[0] = 1;
+
+		for(int x = 0; x < rows; x++)
+			for(int y = 0; y < width; y++)
+			{
+				if(x == 0 && y == 0)
+					continue;
 
-					if(i.hasNext())
+				long n = 0;
+				for(int op = 0; op < OPS.length; op++)
+				{
+					int next = step(op, x, y);
+					if(next >= 0)
 					{
-						i.next();    // delete next one
-						i.remove();
+						n += pathCount[next];
+						if(n < 0)
+							n = Long.MAX_VALUE;
 					}
 				}
+				pathCount[x * width + y] = n;
 			}
 
+		pathCounted = true;
+		return pathCount;
+	}
 
-			// get the oldest element of the list
-			PlaceHolder ph = stack.removeFirst();
+	/*
+	 * Keeps a random sample of maxAlignments of the optimal alignments.
+	 *
+	 * The alignments are numbered 0 to N-1 lexicographically over the walk
+	 * back from the bottom-right corner of D: at each cell, the alignments
+	 * that take OPS[0] come first, then those that take OPS[1], and so on.
+	 * This is not the order of findAlignments(), a breadth-first search
+	 * that finishes the alignments with the fewest steps first; the
+	 * numbering only needs to be a fixed one-to-one map, so that the
+	 * sample is uniform.  maxAlignments distinct numbers are drawn (Floyd's
+	 * algorithm, the same distribution as a reservoir sample of the whole
+	 * sequence) and the corresponding alignments are built directly, using
+	 * the number of paths through each cell to decide which branch contains
+	 * the alignment wanted.  The random generator is seeded with a constant,
+	 * so the same texts always give the same sample.
+	 */
+	private void sampleAlignments()
+	{
+		A = new Vector<Alignment>();
+		sampled = true;
+		nodeCount = 0;
 
-			// the current position (x,y)
-			int x = ph.X;
-			int y = ph.Y;
+		long[] count = getPathCounts();
+		long total = count[rows * width - 1];
+		int k = (int)Math.min(maxAlignments, total);
 
-			// if we've arrived at the top-left corner, we're done, so store
-			// the alignment path
-			if(x == 0 && y == 0)
+		// choose k distinct alignment numbers
+		Random random = new Random(ALIGNMENT_SAMPLE_SEED);
+		TreeSet<Long> chosen = new TreeSet<Long>();
+		for(long j = total - k; j < total; j++)
+		{
+			long r = nextLong(random, j + 1);
+			if(!chosen.add(r))
+				chosen.add(j);
+		}
+
+		// walk to each chosen alignment, reusing the nodes shared with the
+		// previous one (the numbers are in order, so neighbours share the
+		// most steps)
+		int depthMax = rows + width;
+		int[] prevNode = new int[depthMax];
+		int[] prevOp   = new int[depthMax];
+		int prevDepth  = 0;
+
+		for(long rank : chosen)
+		{
+			int x = rows - 1;
+			int y = width - 1;
+			int node = -1;
+			int depth = 0;
+			boolean shared = true;
+
+			while(x != 0 || y != 0)
 			{
-				A.add(ph.getAlignment());
-				continue;
+				int op, next = -1, last = -1, lastOp = -1;
+				for(op = 0; op < OPS.length; op++)
+				{
+					next = step(op, x, y);
+					if(next < 0)
+						continue;
+					last = next;
+					lastOp = op;
+					if(rank < count[next])
+						break;
+					rank -= count[next];
+				}
+				if(op == OPS.length)
+				{
+					// only possible when the counts have saturated
+					next = last;
+					op = lastOp;
+				}
+
+				shared = shared && depth < prevDepth && prevOp[depth] == op;
+				if(shared)
+					node = prevNode[depth];
+				else
+				{
+					node = newNode(node, OPS[op]);
+					prevNode[depth] = node;
+					prevOp[depth] = op;
+				}
+				depth++;
+
+				x = next / width;
+				y = next % width;
+			}
+			prevDepth = depth;
+
+			A.add(new Alignment(node));
+		}
+	}
+
+	/*
+	 * Returns a uniformly distributed long from 0 (inclusive) to bound
+	 * (exclusive).
+	 */
+	private static long nextLong(Random random, long bound)
+	{
+		long r, v;
+		do
+		{
+			r = random.nextLong() >>> 1;
+			v = r % bound;
+		} while(r - v + (bound - 1) < 0);
+		return v;
+	}
+
+	/**
+	 * This function returns true if there were more than the maximum number
+	 * of optimal alignments, in which case {@link #getAlignmentVector}
+	 * holds a random (but reproducible) sample of them.  It is always true
+	 * in linear-space mode (see {@link #linearSpace}).
+	 *
+	 * @return true if the alignments are a sample
+	 */
+	public boolean isAlignmentSample()
+	{
+		return sampled;
+	}
+
+	/**
+	 * This function returns the total number of optimal alignments (which
+	 * may be more than {@link #getAlignmentVectorSize}).  The count
+	 * saturates at <code>Long.MAX_VALUE</code>.  In linear-space mode (see
+	 * {@link #linearSpace}) the number is not known, and -1 is returned.
+	 *
+	 * @return the number of optimal alignments
+	 */
+	public long getOptimalAlignmentCount()
+	{
+		if(D == null)
+			return -1;
+		if(!sampled)
+			return A.size();
+		long[] count = getPathCounts();
+		return count[rows * width - 1];
+	}
+
+
+	//-------------------------------------------------------------------
+	// Expected error counts over all of the optimal alignments, without
+	// generating the alignments
+	//-------------------------------------------------------------------
+
+	/**
+	 * The mean number of each kind of step over all of the optimal
+	 * alignments of a presented and transcribed text, overall and for each
+	 * pair of aligned elements.  See {@link #getExpectedOperationCounts}.
+	 */
+	public static class OperationCounts
+	{
+		double correct, insertions, deletions, substitutions, transpositions;
+
+		// the pairs of aligned elements, in the order first seen
+		ArrayList<String> pairPresented = new ArrayList<String>();
+		ArrayList<String> pairTranscribed = new ArrayList<String>();
+		StringBuilder pairOp = new StringBuilder();
+		double[] pairCount = new double[16];
+
+		// open addressing on (operation, packed element IDs): each slot
+		// holds a key and its pair + 1, or 0 if the slot is empty
+		long[] slotKey = new long[32];
+		int[] slotPair = new int[32];
+
+		private int slot(char op, long key)
+		{
+			long h = (key ^ op) * 0x9e3779b97f4a7c15L;
+			return (int)(h >>> 40) & (slotKey.length - 1);
+		}
+
+		/*
+		 * Returns the pair with this operation and key, or -1 if there
+		 * is none yet.
+		 */
+		int find(char op, long key)
+		{
+			int mask = slotKey.length - 1;
+			for(int s = slot(op, key); slotPair[s] != 0; s = (s + 1) & mask)
+				if(slotKey[s] == key && pairOp.charAt(slotPair[s] - 1) == op)
+					return slotPair[s] - 1;
+			return -1;
+		}
+
+		/*
+		 * Adds a new pair (see find) and returns it.
+		 */
+		int insert(char op, long key, String p, String t)
+		{
+			int k = pairPresented.size();
+			pairPresented.add(p);
+			pairTranscribed.add(t);
+			pairOp.append(op);
+			if(k == pairCount.length)
+				pairCount = Arrays.copyOf(pairCount, 2 * k);
+
+			if(2 * (k + 1) > slotKey.length)
+			{
+				long[] oldKey = slotKey;
+				int[] oldPair = slotPair;
+				slotKey = new long[2 * oldKey.length];
+				slotPair = new int[2 * oldKey.length];
+				for(int i = 0; i < oldKey.length; i++)
+					if(oldPair[i] != 0)
+						place(pairOp.charAt(oldPair[i] - 1), oldKey[i], oldPair[i]);
+			}
+			place(op, key, k + 1);
+			return k;
+		}
+
+		private void place(char op, long key, int pair)
+		{
+			int mask = slotKey.length - 1;
+			int s = slot(op, key);
+			while(slotPair[s] != 0)
+				s = (s + 1) & mask;
+			slotKey[s] = key;
+			slotPair[s] = pair;
+		}
+
+		/**
+		 * Returns the mean number of steps of the given kind.
+		 *
+		 * @param op one of the explanation characters c, i, d, x or t.  A
+		 *        transposition is one step, although it occupies two
+		 *        characters of the explanation string.
+		 * @return the mean number of such steps per optimal alignment
+		 */
+		public double getCount(char op)
+		{
+			switch(op)
+			{
+				case 'c': return correct;
+				case 'i': return insertions;
+				case 'd': return deletions;
+				case 'x': return substitutions;
+				case 't': return transpositions;
+				default:  throw new IllegalArgumentException("unknown operation: " + op);
+			}
+		}
+
+		/**
+		 * Returns the mean number of errors (insertions, deletions,
+		 * substitutions and transpositions).
+		 */
+		public double getErrorCount()
+		{
+			return insertions + deletions + substitutions + transpositions;
+		}
+
+		/**
+		 * Returns the mean length of the explanation strings (a
+		 * transposition counts twice).
+		 */
+		public double getMeanExplanationLength()
+		{
+			return correct + insertions + deletions + substitutions + 2 * transpositions;
+		}
+
+		/**
+		 * Returns the number of distinct (operation, presented element,
+		 * transcribed element) combinations seen.
+		 */
+		public int getPairCount()
+		{
+			return pairPresented.size();
+		}
+
+		/**
+		 * Returns the presented element of a pair ("-" for an insertion).
+		 */
+		public String getPairPresented(int k)
+		{
+			return pairPresented.get(k);
+		}
+
+		/**
+		 * Returns the transcribed element of a pair ("-" for a deletion).
+		 */
+		public String getPairTranscribed(int k)
+		{
+			return pairTranscribed.get(k);
+		}
+
+		/**
+		 * Returns the explanation character of a pair.  The two elements
+		 * of a transposition are two pairs, both marked 't'.
+		 */
+		public char getPairOperation(int k)
+		{
+			return pairOp.charAt(k);
+		}
+
+		/**
+		 * Returns the mean number of times a pair appears in an optimal
+		 * alignment.
+		 */
+		public double getPairExpectation(int k)
+		{
+			return pairCount[k];
+		}
+	}
+
+	/**
+	 * This function returns the mean number of correct, inserted, deleted,
+	 * substituted and transposed elements over all of the optimal
+	 * alignments (not just those in {@link #getAlignmentVector}, which may
+	 * be a sample), without generating the alignments.<p>
+	 *
+	 * The number of optimal paths from the top-left corner of D to every
+	 * cell (forward), and from every cell to the bottom-right corner
+	 * (backward), are counted.  A step from cell u to cell v then appears in
+	 * F(u) * B(v) of the F(end) optimal alignments.  The counts are kept as
+	 * logarithms, so they cannot overflow however long the texts are.  The
+	 * steps are those of the alignments, including transpositions.
+	 *
+	 * @return the expected counts
+	 */
+	public OperationCounts getExpectedOperationCounts()
+	{
+		final OperationCounts counts = new OperationCounts();
+		final int[] pid = elementIDs(true), tid = elementIDs(false);
+		expectedSteps(new StepSink()
+		{
+			public void step(char op, int p, int t, double w)
+			{
+				switch(op)
+				{
+					case 'c': counts.correct += w; break;
+					case 'x': counts.substitutions += w; break;
+					case 'i': counts.insertions += w; break;
+					case 'd': counts.deletions += w; break;
+					default:  counts.transpositions += w / 2; break;   // one step, two pairs
+				}
+				countPair(counts, op, pid, tid, p, t, w);
 			}
+		});
+		return counts;
+	}
+
+	/*
+	 * Receives the steps of the optimal alignments from expectedSteps():
+	 * presented element p and transcribed element t (-1 for none) are
+	 * aligned by step op in a fraction w of the alignments.  The two pairs
+	 * of a transposition are passed one after the other, both as 't'.
+	 */
+	interface StepSink
+	{
+		void step(char op, int p, int t, double w);
+	}
+
+	/*
+	 * Passes every step of the optimal alignments, with its expected
+	 * count, to the sink (see getExpectedOperationCounts).
+	 */
+	void expectedSteps(StepSink sink)
+	{
+		if(D == null)
+			throw new IllegalStateException("the MSD matrix is not kept in linear-space mode");
+
+		int cells = rows * width;
+		if(forward == null || forward.length < cells)
+		{
+			forward = new double[cells];
+			backward = new double[cells];
+		}
+		double[] forward = this.forward, backward = this.backward;
 
-			if(x > 0 && y > 0)
+		// log of the number of optimal paths from (0,0) to each cell
+		forward[0] = 0.0;
+		for(int v = 1; v < cells; v++)
+		{
+			double sum = Double.NEGATIVE_INFINITY;
+			for(int op = 0; op < OPS.length; op++)
 			{
-				// correct (matching) characters
-				if(D[x][y] == D[x-1][y-1] && C.getItemDistance(x-1,y-1) == 0)
-					stack.addLast( new PlaceHolder(ph, "c", x-1, y-1) );
+				int u = step(op, v / width, v % width);
+				if(u >= 0)
+					sum = logAdd(sum, forward[u]);
+			}
+			forward[v] = sum;
+		}
 
-				// substitution error
-				if(D[x][y] == D[x-1][y-1] + 1)
-					stack.addLast( new PlaceHolder(ph, "x", x-1, y-1) );
+		// log of the number of optimal paths from each cell to the end
+		Arrays.fill(backward, 0, cells, Double.NEGATIVE_INFINITY);
+		backward[cells - 1] = 0.0;
+		for(int v = cells - 1; v > 0; v--)
+			for(int op = 0; op < OPS.length; op++)
+			{
+				int u = step(op, v / width, v % width);
+				if(u >= 0)
+					backward[u] = logAdd(backward[u], backward[v]);
 			}
 
-			// insertion error
-			if(y > 0 && D[x][y] == D[x][y-1] + 1)
-				stack.addLast( new PlaceHolder(ph, "i", x, y-1) );
+		double total = forward[cells - 1];
+		for(int v = 1; v < cells; v++)
+		{
+			if(backward[v] == Double.NEGATIVE_INFINITY)
+				continue;   // not on any optimal path
 
-			// deletion error
-			if(x > 0 && D[x][y] == D[x-1][y] + 1)
-				stack.addLast( new PlaceHolder(ph, "d", x-1, y) );
+			int x = v / width;
+			int y = v % width;
+			for(int op = 0; op < OPS.length; op++)
+			{
+				int u = step(op, x, y);
+				if(u < 0)
+					continue;
 
-			// transposition error
-			if((x-2 >= 0) && (y-2 >= 0)
-					&&( D[x][y] - D[x-2][y-2] == C.getTransposedDistance(x-1, y-1)) )
-				stack.addLast( new PlaceHolder(ph, "tt", x-2, y-2) );
+				double w = Math.exp(forward[u] + backward[v] - total);
+				switch(OPS[op])
+				{
+					case 'i':
+						sink.step('i', -1, y-1, w);
+						break;
+					case 'd':
+						sink.step('d', x-1, -1, w);
+						break;
+					case 't':
+						sink.step('t', x-2, y-2, w);
+						sink.step('t', x-1, y-1, w);
+						break;
+					default:
+						sink.step((char)OPS[op], x-1, y-1, w);
+						break;
+				}
+			}
+		}
+	}
 
-		}  // while
+	/*
+	 * IDs of the presented (or transcribed) elements, equal for equal
+	 * elements: the tokens of a TokenCollection, or else the elements
+	 * numbered in the order first seen.
+	 */
+	private int[] elementIDs(boolean presented)
+	{
+		if(PT != null)
+			return presented ? PT : TT;
+
+		int n = presented ? getPresentedSize() : getTranscribedSize();
+		int[] id = new int[n];
+		HashMap<String, Integer> seen = new HashMap<String, Integer>();
+		for(int i = 0; i < n; i++)
+		{
+			String item = presented ? getPresentedItem(i) : getTranscribedItem(i);
+			Integer k = seen.get(item);
+			if(k == null)
+			{
+				k = seen.size();
+				seen.put(item, k);
+			}
+			id[i] = k;
+		}
+		return id;
+	}
+
+	/*
+	 * Adds weight w to the pair of presented element p and transcribed
+	 * element t (-1 for none), keyed on their IDs, so that the element
+	 * strings are fetched only for a pair not seen before.
+	 */
+	private void countPair(OperationCounts counts, char op, int[] pid, int[] tid, int p, int t, double w)
+	{
+		long key = (long)(p < 0 ? 0 : pid[p]) << 32 | ((t < 0 ? 0 : tid[t]) & 0xffffffffL);
+		int k = counts.find(op, key);
+		if(k < 0)
+			k = counts.insert(op, key, p < 0 ? "-" : getPresentedItem(p), t < 0 ? "-" : getTranscribedItem(t));
+		counts.pairCount[k] += w;
+	}
+
+	/*
+	 * Returns log(exp(a) + exp(b)).
+	 */
+	private static double logAdd(double a, double b)
+	{
+		if(a < b)
+		{
+			double t = a;
+			a = b;
+			b = t;
+		}
+		if(b == Double.NEGATIVE_INFINITY)
+			return a;
+		return a + Math.log1p(Math.exp(b - a));
 	}
 
 
@@ -1016,8 +2473,11 @@ public class MSD2
 		String temp;
 		int i, j;
 
-		int x = D.length;
-		int y = D[0].length;
+		if(D == null)
+			throw new IllegalStateException("the MSD matrix is not kept in linear-space mode");
+
+		int x = rows;
+		int y = width;
 
 		// how wide do the columns have to be to accommodate
 		// the values in the matrix?
@@ -1074,7 +2534,7 @@ public class MSD2
 			temp = padrightwithspaces(temp, longest_trans) + "  ";
 
 			for(i = 0; i < x; i++)
-				temp += padleftwithspaces("" + D[i][j], spacing + 1);
+				temp += padleftwithspaces("" + D[i * width + j], spacing + 1);
 
 			System.out.println(temp);
 		}
@@ -1090,6 +2550,8 @@ public class MSD2
 		boolean transposition     = false;
 		boolean word_level        = false;
 		boolean output_alignments = false;
+		boolean linear_space      = false;
+		boolean weighted          = false;
 
 		for(int i = 0; i < args.length; i += 1)
 		{
@@ -1102,6 +2564,12 @@ public class MSD2
 			else if(args[i].equals("-a"))
 				output_alignments = true;
 
+			else if(args[i].equals("-l"))
+				linear_space = true;
+
+			else if(args[i].equals("-c"))
+				weighted = true;
+
 			else
 			{
 				System.out.print(newline
@@ -1110,11 +2578,13 @@ public class MSD2
 						+ "    Copyright (C) by William Soukoreff and Scott MacKenzie" + newline
 						+ "           Released under the GNU public licence" + newline
 						+ newline
-						+ "java MSD.java [-t] [-w] [-h] [-a]" + newline
+						+ "java MSD.java [-t] [-w] [-h] [-a] [-l] [-c]" + newline
 						+ "  -h  = output this help text" + newline
 						+ "  -t  = treat tranposition as an atomic edit" + newline
 						+ "  -w  = perform the word-level MSD (defaults to character-level)" + newline
 						+ "  -a  = display the alignment matrices" + newline
+						+ "  -l  = find one alignment in linear space (no matrices)" + newline
+						+ "  -c  = with -w, weight word substitutions by their character distance" + newline
 						);
 
 				System.out.println(newline
@@ -1165,16 +2635,31 @@ public class MSD2
 				while(st.hasMoreTokens())
 					T.add(st.nextToken());
 
-				m = new MSD2(P, T, transposition);
+				WordCollection c = new WordCollection(P, T, transposition);
+				m = linear_space ? linearSpace(c) : new MSD2(c);
+
+				if(weighted)
+				{
+					WeightedMSD w = new WeightedMSD(new HierarchicalWordCollection(
+							P.toArray(new String[P.size()]),
+							T.toArray(new String[T.size()]),
+							transposition, new WordDistanceCache()));
+					System.out.println("");
+					System.out.println("Weighted MSD: " + w.getDistance()
+							+ "  (" + w.getExplanation() + ")");
+				}
 			}
 			else
-				m = new MSD2(p, t, transposition);
+			{
+				TwoStringCollection c = new TwoStringCollection(p, t, transposition);
+				m = linear_space ? linearSpace(c) : new MSD2(c);
+			}
 
 			System.out.println("");
 			System.out.println("Number of Alignments: " + m.getAlignmentVectorSize());
 			System.out.println("MSD : " + m.getMSD());
 
-			if(!output_alignments)
+			if(!output_alignments && !linear_space)
 			{
 				m.printMSDMatrix();
 				System.out.println("");
@@ -1186,7 +2671,7 @@ public class MSD2
 			{
 				Alignment a = m.getAlignment(i);
 
-				if(!output_alignments)
+				if(!output_alignments || linear_space)
 				{
 					System.out.println("Alignment " + i + " = " + a);
 					continue;
@@ -1198,7 +2683,7 @@ public class MSD2
 				a.printAlignmentMatrix();
 			}
 
-			if(m.getAlignmentVectorSize() == 0)
+			if(m.getAlignmentVectorSize() == 0 && !linear_space)
 				m.printMSDMatrix();
 			else
 			{
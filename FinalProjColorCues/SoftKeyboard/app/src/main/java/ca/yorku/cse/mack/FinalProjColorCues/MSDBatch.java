@@ -0,0 +1,272 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MSDBatch - scores many (presented, transcribed) pairs at once.
+ * <p>
+ *
+ * The pairs are divided into small chunks, and the chunks are handed out to the threads of <code>MSDThreads</code>
+ * (and to the calling thread) as each finishes its previous chunk, so a few long phrases do not hold up the rest.
+ * Each thread reuses its own workspace (see <code>MSD.forThread()</code> and <code>MSD2.forThread()</code>), and writes
+ * its results straight into primitive arrays, in the same order as the input. When the error rate does not depend on
+ * the alignments, the MSD2 comparisons keep only three rows of the 'D' matrix.
+ * <p>
+ *
+ * The values are identical to those of scoring the pairs one at a time:
+ * <p>
+ *
+ * <ul>
+ * <li>character level, no transpositions: <code>MSD.getErrorRate()</code> or <code>MSD.getErrorRateNew()</code>
+ *
+ * <li>transpositions or word level: <code>MSD2.getMSD()</code>, with the error rate taken over the longer of the two
+ * texts, or <code>MSD2.getErrorRateNew()</code>
+ * </ul>
+ * <p>
+ *
+ * Many transcriptions of one presented text are best scored with <code>PresentedText.score()</code>, which prepares
+ * the presented text once.
+ * <p>
+ *
+ * Example:
+ *
+ * <pre>
+ *     MSDBatch.Options options = new MSDBatch.Options();
+ *     options.newErrorRate = true;
+ *     MSDBatch.Result r = MSDBatch.score(presented, transcribed, options);
+ *     double firstErrorRate = r.errorRate[0];
+ * </pre>
+ */
+public class MSDBatch
+{
+	/**
+	 * Pairs are handed out to the threads this many at a time.
+	 */
+	private static final int CHUNK_SIZE = 32;
+
+	/**
+	 * How the pairs are to be scored.
+	 */
+	public static class Options
+	{
+		/**
+		 * Compute the "new-and-improved" error rate (see <code>MSD.getErrorRateNew()</code>) rather than the MSD over
+		 * the length of the longer text.
+		 */
+		public boolean newErrorRate;
+
+		/**
+		 * Allow transpositions of neighbouring characters (or words), which then count as one error.
+		 */
+		public boolean transpositions;
+
+		/**
+		 * Compare words (separated by spaces) rather than characters.
+		 */
+		public boolean wordLevel;
+
+		public Options()
+		{
+		}
+
+		public Options(boolean newErrorRateArg, boolean transpositionsArg, boolean wordLevelArg)
+		{
+			newErrorRate = newErrorRateArg;
+			transpositions = transpositionsArg;
+			wordLevel = wordLevelArg;
+		}
+	}
+
+	/**
+	 * The scores of a batch. Entry <code>k</code> of each array belongs to pair <code>k</code> of the input.
+	 */
+	public static class Result
+	{
+		public final int[] msd;
+		public final double[] errorRate;
+
+		Result(int size)
+		{
+			msd = new int[size];
+			errorRate = new double[size];
+		}
+	}
+
+	private final String[] presented, transcribed;
+	private final PresentedText shared; // the presented text of every pair (presented is then null)
+	private final Options options;
+	private final Result result;
+
+	private final AtomicInteger nextChunk = new AtomicInteger();
+
+	private MSDBatch(String[] presentedArg, PresentedText sharedArg, String[] transcribedArg, Options optionsArg)
+	{
+		presented = presentedArg;
+		shared = sharedArg;
+		transcribed = transcribedArg;
+		options = optionsArg;
+		result = new Result(transcribed.length);
+	}
+
+	/**
+	 * Score a list of pairs. <code>s1</code> of each pair is the presented text, and <code>s2</code> the transcribed
+	 * text.
+	 */
+	public static Result score(List<StringPair> pairs, Options options)
+	{
+		String[] p = new String[pairs.size()];
+		String[] t = new String[pairs.size()];
+		int k = 0;
+		for (StringPair sp : pairs)
+		{
+			p[k] = sp.s1;
+			t[k] = sp.s2;
+			++k;
+		}
+		return score(p, t, options);
+	}
+
+	/**
+	 * Score the pairs (<code>presented[k]</code>, <code>transcribed[k]</code>).
+	 *
+	 * @param presented
+	 *            the presented texts
+	 * @param transcribed
+	 *            the transcribed texts (the same number as presented)
+	 * @param options
+	 *            how the pairs are to be scored
+	 */
+	public static Result score(String[] presented, String[] transcribed, Options options)
+	{
+		if (presented.length != transcribed.length)
+			throw new IllegalArgumentException("presented and transcribed differ in length: " + presented.length
+					+ " vs " + transcribed.length);
+		MSDBatch batch = new MSDBatch(presented, null, transcribed, options);
+		batch.run();
+		return batch.result;
+	}
+
+	/**
+	 * Score many transcriptions of the same presented text. See <code>PresentedText.score()</code>.
+	 */
+	static Result score(PresentedText presented, String[] transcribed, Options options)
+	{
+		MSDBatch batch = new MSDBatch(null, presented, transcribed, options);
+		batch.run();
+		return batch.result;
+	}
+
+	/**
+	 * Score a single pair, without the thread pool. The same as entry 0 of <code>score()</code> for a batch of one.
+	 */
+	static Result score(String presented, String transcribed, Options options)
+	{
+		MSDBatch batch = new MSDBatch(new String[] { presented }, null, new String[] { transcribed }, options);
+		batch.work();
+		return batch.result;
+	}
+
+	private void run()
+	{
+		MSDThreads.run((transcribed.length + CHUNK_SIZE - 1) / CHUNK_SIZE, new Runnable()
+		{
+			public void run()
+			{
+				work();
+			}
+		});
+	}
+
+	/*
+	 * Score chunks until there are none left. Word-level comparisons intern their words in a table of this thread's
+	 * own, which goes when the run is over.
+	 */
+	private void work()
+	{
+		MSD2.SymbolTable symbols = options.wordLevel && shared == null ? new MSD2.SymbolTable() : null;
+		int chunk;
+		while ((chunk = nextChunk.getAndIncrement()) * CHUNK_SIZE < transcribed.length)
+		{
+			int from = chunk * CHUNK_SIZE;
+			scoreRange(from, Math.min(transcribed.length, from + CHUNK_SIZE), symbols);
+		}
+	}
+
+	private void scoreRange(int from, int to, MSD2.SymbolTable symbols)
+	{
+		if (shared == null && !options.transpositions && !options.wordLevel && !options.newErrorRate)
+		{
+			// the distances alone: short pairs are run side by side
+			LaneMSD.getMSD(presented, transcribed, from, to, result.msd);
+			for (int k = from; k < to; k++)
+				result.errorRate[k] = (double) result.msd[k]
+						/ Math.max(presented[k].length(), transcribed[k].length()) * 100.0;
+			return;
+		}
+
+		for (int k = from; k < to; k++)
+			scorePair(k, symbols);
+	}
+
+	private void scorePair(int k, MSD2.SymbolTable symbols)
+	{
+		String t = transcribed[k];
+
+		if (!options.transpositions && !options.wordLevel)
+		{
+			if (shared != null && !options.newErrorRate)
+			{
+				result.msd[k] = shared.getMSD(t);
+				result.errorRate[k] = (double) result.msd[k] / Math.max(shared.length(), t.length()) * 100.0;
+			} else if (shared != null)
+			{
+				IncrementalMSD m = shared.columns(t);
+				result.msd[k] = m.getMSD();
+				result.errorRate[k] = m.getErrorRateNew();
+			} else
+			{
+				MSD m = MSD.forThread().reset(presented[k], t);
+				result.msd[k] = m.getMSD();
+				result.errorRate[k] = m.getErrorRateNew();
+			}
+			return;
+		}
+
+		MSD2.MSDCollection c;
+		if (shared != null)
+			c = options.wordLevel ? shared.wordCollection(t, options.transpositions) : shared.charCollection(t,
+					options.transpositions);
+		else if (options.wordLevel)
+			c = new MSD2.WordCollection(words(presented[k]), words(t), options.transpositions, symbols);
+		else
+			c = new MSD2.TwoStringCollection(presented[k], t, options.transpositions);
+
+		// the alignments are needed only if the error rate depends on them
+		MSD2 m = MSD2.forThread();
+		if (options.newErrorRate)
+		{
+			m.reset(c);
+			result.msd[k] = m.getMSD();
+			result.errorRate[k] = m.getErrorRateNew();
+		} else
+		{
+			result.msd[k] = m.rollingMSD(c);
+			result.errorRate[k] = (double) result.msd[k] / Math.max(c.getPresentedSize(), c.getTranscribedSize())
+					* 100.0;
+		}
+	}
+
+	/*
+	 * Split a text into words at the spaces (as MSD2.main() does).
+	 */
+	static String[] words(String s)
+	{
+		StringTokenizer st = new StringTokenizer(s, " ");
+		String[] w = new String[st.countTokens()];
+		for (int i = 0; i < w.length; i++)
+			w[i] = st.nextToken();
+		return w;
+	}
+}
@@ -0,0 +1,295 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MSDCache - a front end for the MSD statistics that avoids recomputing them.
+ * <p>
+ *
+ * Most transcriptions are identical to the presented text, or differ from it only near one end, and the same pairs
+ * recur each time a study is re-analysed. So:
+ * <p>
+ *
+ * <ul>
+ * <li>Identical texts are scored at once (MSD = 0), without touching the cache.
+ *
+ * <li>Otherwise, the common prefix and suffix are stripped, since they do not change the MSD. If what is left of
+ * either text is empty, the difference is a single block of insertions or deletions, and every optimal alignment is as
+ * long as the longer text, so the "new-and-improved" error rate is known as well.
+ *
+ * <li>The scores are kept in a cache of the most recently used pairs, up to a fixed number of pairs. The
+ * "new-and-improved" error rate of other pairs needs the whole 'D' matrix (see <code>MSD.meanAlignmentSize()</code>),
+ * so it is computed on the full texts, and only when first asked for.
+ * </ul>
+ * <p>
+ *
+ * The values are those of <code>MSD</code>, except that the "new-and-improved" error rate of a single block of
+ * insertions or deletions is exact, where <code>MSD</code> may differ in the last digit. The cache is thread-safe.
+ * Example:
+ *
+ * <pre>
+ *     MSDCache cache = new MSDCache(1000);
+ *     double e = cache.getErrorRate(presented, transcribed);
+ *     long hits = cache.getHitCount();
+ * </pre>
+ */
+public class MSDCache
+{
+	/**
+	 * The scores of one pair of texts.
+	 */
+	public static class Score
+	{
+		private final String s1, s2;
+		private final int msd;
+		private final double errorRate;
+		private double errorRateNew;
+		private boolean hasErrorRateNew;
+
+		Score(String s1Arg, String s2Arg, int msdArg)
+		{
+			s1 = s1Arg;
+			s2 = s2Arg;
+			msd = msdArg;
+			errorRate = (double) msd / Math.max(s1.length(), s2.length()) * 100.0;
+		}
+
+		Score(String s1Arg, String s2Arg, int msdArg, double errorRateNewArg)
+		{
+			this(s1Arg, s2Arg, msdArg);
+			errorRateNew = errorRateNewArg;
+			hasErrorRateNew = true;
+		}
+
+		/**
+		 * See <code>MSD.getMSD()</code>.
+		 */
+		public int getMSD()
+		{
+			return msd;
+		}
+
+		/**
+		 * See <code>MSD.getErrorRate()</code>.
+		 */
+		public double getErrorRate()
+		{
+			return errorRate;
+		}
+
+		/**
+		 * See <code>MSD.getErrorRateNew()</code>.
+		 */
+		public synchronized double getErrorRateNew()
+		{
+			if (!hasErrorRateNew)
+			{
+				errorRateNew = MSD.forThread().reset(s1, s2).getErrorRateNew();
+				hasErrorRateNew = true;
+			}
+			return errorRateNew;
+		}
+	}
+
+	private static final class Key
+	{
+		final String s1, s2;
+		final int hash;
+
+		Key(String s1Arg, String s2Arg)
+		{
+			s1 = s1Arg;
+			s2 = s2Arg;
+			hash = 31 * s1.hashCode() + s2.hashCode();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return hash == k.hash && s1.equals(k.s1) && s2.equals(k.s2);
+		}
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Key, Score> cache;
+	private long hits, misses, evictions, trivial;
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param capacityArg
+	 *            the most pairs to keep
+	 */
+	public MSDCache(int capacityArg)
+	{
+		if (capacityArg < 1)
+			throw new IllegalArgumentException("capacity must be positive: " + capacityArg);
+		capacity = capacityArg;
+		cache = new LinkedHashMap<Key, Score>(16, 0.75f, true) // in access order
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Score> eldest)
+			{
+				if (size() <= capacity)
+					return false;
+				++evictions;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns the scores of a pair of texts.
+	 *
+	 * @param s1
+	 *            the 1st text string (the "presented" text)
+	 * @param s2
+	 *            the 2nd text string (the "transcribed" text)
+	 */
+	public Score score(String s1, String s2)
+	{
+		if (s1.equals(s2))
+		{
+			synchronized (this)
+			{
+				++trivial;
+			}
+			return new Score(s1, s2, 0, (double) 0 / s1.length() * 100.0);
+		}
+
+		Key key = new Key(s1, s2);
+		synchronized (this)
+		{
+			Score s = cache.get(key);
+			if (s != null)
+			{
+				++hits;
+				return s;
+			}
+			++misses;
+		}
+
+		Score s = compute(s1, s2);
+		synchronized (this)
+		{
+			cache.put(key, s);
+		}
+		return s;
+	}
+
+	private static Score compute(String s1, String s2)
+	{
+		// strip the common prefix and suffix
+		int n1 = s1.length(), n2 = s2.length();
+		int start = 0;
+		while (start < n1 && start < n2 && s1.charAt(start) == s2.charAt(start))
+			++start;
+		int end1 = n1, end2 = n2;
+		while (end1 > start && end2 > start && s1.charAt(end1 - 1) == s2.charAt(end2 - 1))
+		{
+			--end1;
+			--end2;
+		}
+
+		// a single block of insertions or deletions
+		if (end1 == start || end2 == start)
+		{
+			int msd = (end1 - start) + (end2 - start);
+			return new Score(s1, s2, msd, (double) msd / Math.max(n1, n2) * 100.0);
+		}
+
+		return new Score(s1, s2, BitParallelMSD.getMSD(s1.substring(start, end1), s2.substring(start, end2)));
+	}
+
+	/**
+	 * See <code>MSD.getMSD()</code>.
+	 */
+	public int getMSD(String s1, String s2)
+	{
+		return score(s1, s2).getMSD();
+	}
+
+	/**
+	 * See <code>MSD.getErrorRate()</code>.
+	 */
+	public double getErrorRate(String s1, String s2)
+	{
+		return score(s1, s2).getErrorRate();
+	}
+
+	/**
+	 * See <code>MSD.getErrorRateNew()</code>.
+	 */
+	public double getErrorRateNew(String s1, String s2)
+	{
+		return score(s1, s2).getErrorRateNew();
+	}
+
+	/**
+	 * Returns the number of pairs found in the cache.
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the number of pairs not found in the cache (and so computed).
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns the number of pairs removed from the cache to make room for others.
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of pairs of identical texts (which bypass the cache).
+	 */
+	public synchronized long getIdenticalCount()
+	{
+		return trivial;
+	}
+
+	/**
+	 * Returns the number of pairs in the cache.
+	 */
+	public synchronized int size()
+	{
+		return cache.size();
+	}
+
+	/**
+	 * Returns the most pairs the cache will keep.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Empty the cache. The counters are kept.
+	 */
+	public synchronized void clear()
+	{
+		cache.clear();
+	}
+}
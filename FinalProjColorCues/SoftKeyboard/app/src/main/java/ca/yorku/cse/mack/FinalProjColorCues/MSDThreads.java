@@ -0,0 +1,143 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * MSDThreads - the pool of worker threads shared by the parallel MSD computations.
+ * <p>
+ *
+ * There is one daemon thread per available processor, created on first use. Work running on one of these threads
+ * must not wait for other work submitted to the pool (it could wait forever for a thread that is busy waiting on it),
+ * so parallel code checks <code>isWorker()</code> and runs sequentially when it is already on a worker.
+ * <p>
+ *
+ * Most parallel code here hands out chunks of work (pairs, phrases, files) from a shared counter; <code>run()</code>
+ * starts the threads that do so and waits for them.
+ */
+final class MSDThreads
+{
+	private static ExecutorService pool;
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+	private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>();
+
+	private MSDThreads()
+	{
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 */
+	static int size()
+	{
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the shared pool.
+	 */
+	static synchronized ExecutorService pool()
+	{
+		if (pool == null)
+			pool = Executors.newFixedThreadPool(size(), new ThreadFactory()
+			{
+				public Thread newThread(final Runnable r)
+				{
+					Thread t = new Thread(new Runnable()
+					{
+						public void run()
+						{
+							worker.set(Boolean.TRUE);
+							r.run();
+						}
+					}, "MSD-worker-" + threadNumber.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		return pool;
+	}
+
+	/**
+	 * Returns true if the calling thread is one of the pool's workers.
+	 */
+	static boolean isWorker()
+	{
+		return worker.get() != null;
+	}
+
+	/**
+	 * Returns true if work can be spread over the pool from the calling thread.
+	 */
+	static boolean canParallelize()
+	{
+		return size() > 1 && !isWorker();
+	}
+
+	/**
+	 * Run a task on up to <code>threads</code> threads at once: the calling thread, and as many of the pool's workers as
+	 * are needed. Each copy of the task should claim its work (e.g., from an <code>AtomicInteger</code>) until there is
+	 * none left. Returns when every copy has returned; the first exception or error thrown by any of them is then
+	 * rethrown. The task runs on the calling thread alone if the work cannot be spread (see
+	 * <code>canParallelize()</code>).
+	 *
+	 * @param threads
+	 *            the most threads worth using (e.g., the number of chunks of work)
+	 */
+	static void run(int threads, final Runnable task)
+	{
+		int helpers = Math.min(size(), threads) - 1; // the calling thread works too
+		if (helpers < 1 || !canParallelize())
+		{
+			task.run();
+			return;
+		}
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final CountDownLatch done = new CountDownLatch(helpers);
+		ExecutorService pool = pool();
+		for (int h = 0; h < helpers; h++)
+			pool.execute(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						task.run();
+					} catch (Throwable t)
+					{
+						failure.compareAndSet(null, t);
+					} finally
+					{
+						done.countDown();
+					}
+				}
+			});
+
+		try
+		{
+			task.run();
+		} catch (Throwable t)
+		{
+			failure.compareAndSet(null, t);
+		}
+		try
+		{
+			done.await();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for the workers", e);
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException)
+			throw (RuntimeException)t;
+		if (t instanceof Error)
+			throw (Error)t;
+	}
+}
@@ -0,0 +1,283 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.List;
+
+/**
+ * MultiReferenceMSD - the minimum string distance between a transcribed text and the closest of several acceptable
+ * forms of the presented text.
+ * <p>
+ *
+ * A phrase may be accepted in several forms (e.g., with or without accents, capitals or punctuation). Rather than
+ * computing the MSD against each form in turn, the forms are stored in a trie, and the 'D' matrix is computed one row
+ * per trie node, walking the trie depth-first. The rows of a common prefix are therefore computed once for all the
+ * forms that share it, and only the last row of each form is needed for its MSD.
+ * <p>
+ *
+ * Every path through the 'D' matrix passes through every row, so the MSD of any form below a trie node is at least the
+ * smallest entry of that node's row. A branch of the trie is skipped as soon as this bound shows that no form in it can
+ * beat the best form found so far.
+ * <p>
+ *
+ * The best form is the one with the lowest error rate (see <code>MSD.getErrorRate()</code>); of forms with the same
+ * error rate, the one given first is chosen. The result is the same as computing <code>new MSD(form,
+ * transcribed)</code> for every form and keeping the best.
+ * <p>
+ *
+ * Example:
+ *
+ * <pre>
+ *     MultiReferenceMSD forms = new MultiReferenceMSD(new String[] { &quot;cafe au lait&quot;, &quot;caf&eacute; au lait&quot; });
+ *     MultiReferenceMSD.Match m = forms.match(&quot;caf&eacute; o lait&quot;);
+ *     // m.presented is &quot;caf&eacute; au lait&quot;, m.msd is 2
+ * </pre>
+ */
+public class MultiReferenceMSD
+{
+	/**
+	 * The closest form of the presented text.
+	 */
+	public static class Match
+	{
+		/**
+		 * The index of the form, in the order given to the constructor.
+		 */
+		public final int variant;
+
+		/**
+		 * The form itself.
+		 */
+		public final String presented;
+
+		/**
+		 * The minimum string distance between the form and the transcribed text.
+		 */
+		public final int msd;
+
+		/**
+		 * The text entry error rate (%) of the transcribed text against the form.
+		 */
+		public final double errorRate;
+
+		Match(int variantArg, String presentedArg, int msdArg, double errorRateArg)
+		{
+			variant = variantArg;
+			presented = presentedArg;
+			msd = msdArg;
+			errorRate = errorRateArg;
+		}
+	}
+
+	private final String[] variants;
+
+	// the trie; node 0 is the root (the empty prefix)
+	private int nodes;
+	private char[] label; // the character leading into the node
+	private int[] depth;
+	private int[] firstChild, nextSibling;
+	private int[] variant; // the first form ending at the node, or -1
+	private int[] minVariant; // the first form in the node's subtree
+	private int[] maxLength; // the length of the longest form in the node's subtree
+	private int maxDepth;
+
+	/**
+	 * Build the trie of the acceptable forms of a presented text.
+	 *
+	 * @param variantsArg
+	 *            the forms, at least one
+	 */
+	public MultiReferenceMSD(String[] variantsArg)
+	{
+		if (variantsArg.length == 0)
+			throw new IllegalArgumentException("no presented text given");
+		variants = variantsArg.clone();
+
+		int capacity = 1;
+		for (String v : variants)
+			capacity += v.length();
+		label = new char[capacity];
+		depth = new int[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		variant = new int[capacity];
+		minVariant = new int[capacity];
+		maxLength = new int[capacity];
+		newNode('\0', 0);
+
+		for (int k = 0; k < variants.length; k++)
+			add(k);
+	}
+
+	/**
+	 * Build the trie of the acceptable forms of a presented text.
+	 *
+	 * @param variantsArg
+	 *            the forms, at least one
+	 */
+	public MultiReferenceMSD(List<String> variantsArg)
+	{
+		this(variantsArg.toArray(new String[variantsArg.size()]));
+	}
+
+	private int newNode(char c, int d)
+	{
+		int n = nodes++;
+		label[n] = c;
+		depth[n] = d;
+		firstChild[n] = -1;
+		nextSibling[n] = -1;
+		variant[n] = -1;
+		minVariant[n] = Integer.MAX_VALUE;
+		maxLength[n] = 0;
+		return n;
+	}
+
+	private void add(int k)
+	{
+		String v = variants[k];
+		int node = 0;
+		for (int i = 0; ; i++)
+		{
+			if (minVariant[node] > k)
+				minVariant[node] = k;
+			if (maxLength[node] < v.length())
+				maxLength[node] = v.length();
+			if (i == v.length())
+				break;
+
+			// find (or append, keeping the order the forms were given in) the child for the next character
+			char c = v.charAt(i);
+			int child = firstChild[node], last = -1;
+			while (child >= 0 && label[child] != c)
+			{
+				last = child;
+				child = nextSibling[child];
+			}
+			if (child < 0)
+			{
+				child = newNode(c, i + 1);
+				if (last < 0)
+					firstChild[node] = child;
+				else
+					nextSibling[last] = child;
+			}
+			node = child;
+		}
+		if (variant[node] < 0)
+			variant[node] = k;
+		maxDepth = Math.max(maxDepth, v.length());
+	}
+
+	/**
+	 * Returns the number of forms.
+	 */
+	public int size()
+	{
+		return variants.length;
+	}
+
+	/**
+	 * Returns a form of the presented text.
+	 */
+	public String getVariant(int k)
+	{
+		return variants[k];
+	}
+
+	/**
+	 * Find the form of the presented text closest to a transcribed text.
+	 *
+	 * @param transcribed
+	 *            the transcribed text
+	 * @return the form with the lowest error rate, and its MSD and error rate.
+	 */
+	public Match match(String transcribed)
+	{
+		int n = transcribed.length();
+		int cols = n + 1;
+		int[] rows = new int[(maxDepth + 1) * cols]; // the row of each depth on the current trie path
+		for (int j = 0; j < cols; j++)
+			rows[j] = j;
+
+		int bestVariant = -1, bestMSD = 0, bestLength = 0;
+
+		// depth-first walk, keeping the nodes still to visit on an explicit stack
+		int[] stack = new int[nodes];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0)
+		{
+			int node = stack[--top];
+			int d = depth[node];
+			int row = d * cols;
+			int rowMin = d;
+
+			if (d > 0)
+			{
+				char c = label[node];
+				int above = row - cols;
+				rows[row] = d;
+				for (int j = 1; j < cols; j++)
+				{
+					int a = rows[above + j] + 1;
+					int b = rows[row + j - 1] + 1;
+					int diag = rows[above + j - 1] + (c == transcribed.charAt(j - 1) ? 0 : 1);
+					int m = Math.min(Math.min(a, b), diag);
+					rows[row + j] = m;
+					if (m < rowMin)
+						rowMin = m;
+				}
+			}
+
+			// no form below this node can do better than the best so far
+			if (bestVariant >= 0
+					&& compare(rowMin, Math.max(maxLength[node], n), minVariant[node], bestMSD,
+							Math.max(bestLength, n), bestVariant) >= 0)
+				continue;
+
+			int k = variant[node];
+			if (k >= 0)
+			{
+				int msd = rows[row + n];
+				if (bestVariant < 0
+						|| compare(msd, Math.max(d, n), k, bestMSD, Math.max(bestLength, n), bestVariant) < 0)
+				{
+					bestVariant = k;
+					bestMSD = msd;
+					bestLength = d;
+				}
+			}
+
+			// push the children in reverse, so they are visited in the order the forms were given
+			int first = top;
+			for (int child = firstChild[node]; child >= 0; child = nextSibling[child])
+				stack[top++] = child;
+			reverse(stack, first, top);
+		}
+
+		return new Match(bestVariant, variants[bestVariant], bestMSD, (double) bestMSD / Math.max(bestLength, n)
+				* 100.0);
+	}
+
+	/*
+	 * Compare the error rates msd1 / length1 and msd2 / length2 exactly, breaking ties by form index. A length of 0
+	 * (both texts empty) is treated as an error rate of 0.
+	 */
+	private static int compare(int msd1, int length1, int variant1, int msd2, int length2, int variant2)
+	{
+		long a = (long) msd1 * Math.max(length2, 1);
+		long b = (long) msd2 * Math.max(length1, 1);
+		if (a != b)
+			return a < b ? -1 : 1;
+		return variant1 < variant2 ? -1 : variant1 == variant2 ? 0 : 1;
+	}
+
+	private static void reverse(int[] a, int from, int to)
+	{
+		for (int i = from, j = to - 1; i < j; i++, j--)
+		{
+			int t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+}
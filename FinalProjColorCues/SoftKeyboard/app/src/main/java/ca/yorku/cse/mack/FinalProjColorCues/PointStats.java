@@ -0,0 +1,109 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+/**
+ * PointStats - the count, centroid and covariance of a stream of (x, y) points, updated one point at a time.
+ * <p>
+ *
+ * This is the two-dimensional form of <code>RunningStats</code>: the means and the sums of squared deviations and
+ * cross-products are updated with Welford's method, and two PointStats of separate streams are combined with
+ * <code>merge()</code>. Only six numbers are kept, however many points are added.
+ */
+public class PointStats
+{
+	private long n;
+	private double meanX, meanY;
+	private double m2x, m2y, cxy; // sums of squared deviations and of cross-products
+
+	/**
+	 * Add a point.
+	 */
+	public void add(double x, double y)
+	{
+		++n;
+		double dx = x - meanX;
+		double dy = y - meanY;
+		meanX += dx / n;
+		meanY += dy / n;
+		m2x += dx * (x - meanX);
+		m2y += dy * (y - meanY);
+		cxy += dx * (y - meanY);
+	}
+
+	/**
+	 * Add the points seen by another PointStats to this one.
+	 */
+	public void merge(PointStats other)
+	{
+		if (other.n == 0)
+			return;
+		long total = n + other.n;
+		double dx = other.meanX - meanX;
+		double dy = other.meanY - meanY;
+		double f = (double)n * other.n / total;
+		meanX += dx * other.n / total;
+		meanY += dy * other.n / total;
+		m2x += other.m2x + dx * dx * f;
+		m2y += other.m2y + dy * dy * f;
+		cxy += other.cxy + dx * dy * f;
+		n = total;
+	}
+
+	/**
+	 * Returns the number of points.
+	 */
+	public long getCount()
+	{
+		return n;
+	}
+
+	/**
+	 * Returns the mean x (NaN if there are no points).
+	 */
+	public double getMeanX()
+	{
+		return n > 0 ? meanX : Double.NaN;
+	}
+
+	/**
+	 * Returns the mean y (NaN if there are no points).
+	 */
+	public double getMeanY()
+	{
+		return n > 0 ? meanY : Double.NaN;
+	}
+
+	/**
+	 * Returns the sample variance of x (NaN if there are fewer than two points).
+	 */
+	public double getVarianceX()
+	{
+		return n > 1 ? m2x / (n - 1) : Double.NaN;
+	}
+
+	/**
+	 * Returns the sample variance of y (NaN if there are fewer than two points).
+	 */
+	public double getVarianceY()
+	{
+		return n > 1 ? m2y / (n - 1) : Double.NaN;
+	}
+
+	/**
+	 * Returns the sample covariance of x and y (NaN if there are fewer than two points).
+	 */
+	public double getCovariance()
+	{
+		return n > 1 ? cxy / (n - 1) : Double.NaN;
+	}
+
+	/**
+	 * Returns the sample variance of the points projected on a direction (dx, dy), which need not be of unit length.
+	 */
+	public double getVariance(double dx, double dy)
+	{
+		double len2 = dx * dx + dy * dy;
+		if (n < 2 || len2 == 0.0)
+			return Double.NaN;
+		return (dx * dx * m2x + 2.0 * dx * dy * cxy + dy * dy * m2y) / len2 / (n - 1);
+	}
+}
@@ -0,0 +1,213 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.HashMap;
+
+/**
+ * PresentedText - a presented phrase prepared once for scoring against any number of transcriptions.
+ * <p>
+ *
+ * In an experiment, each phrase of the phrase set is entered by many participants, in several sessions, blocks and
+ * layouts. Everything that depends only on the presented phrase is therefore computed here, once:
+ * <p>
+ *
+ * <ul>
+ * <li>the bit-vector "match" masks of the characters (see <code>BitParallelMSD</code>), for the MSD and error rate
+ *
+ * <li>the first column of the 'D' matrix, with its path counts and lengths (see <code>IncrementalMSD</code>), for the
+ * "new-and-improved" error rate
+ *
+ * <li>the character tokens and word IDs of the phrase (see <code>MSD2.TokenCollection</code>), for the MSD with
+ * transpositions and the word-level MSD
+ * </ul>
+ * <p>
+ *
+ * A PresentedText is immutable, and its methods may be called from several threads at once. The values are identical
+ * to those of <code>MSD</code> and <code>MSD2</code> for the same pair of texts, except that the mean alignment size
+ * (and so the "new-and-improved" error rate) is summed column by column, and may differ from <code>MSD</code> in the
+ * last digit.
+ * <p>
+ *
+ * Example:
+ *
+ * <pre>
+ *     PresentedText p = new PresentedText(&quot;the quick brown fox&quot;);
+ *     double e1 = p.getErrorRate(&quot;the quikc brown fox&quot;);
+ *     double e2 = p.getErrorRateNew(&quot;the quick brwn fox&quot;);
+ *     MSDBatch.Result all = p.score(transcriptions, new MSDBatch.Options());
+ * </pre>
+ */
+public class PresentedText
+{
+	private final String text;
+	private final BitParallelMSD bits;
+	private final int[] chars; // the characters of the text, as tokens
+
+	private final String[] words;
+	private final int[] wordIDs; // the index of the first occurrence of each word
+	private final HashMap<String, Integer> wordIndex;
+
+	// the first column of the 'D' matrix: D[i][0] = i, reached by a single path of length i
+	final int[] firstColumn;
+	final double[] firstCount, firstMean;
+
+	// the column-by-column workspace of each thread (see columns())
+	private static final ThreadLocal<IncrementalMSD> workspace = new ThreadLocal<IncrementalMSD>()
+	{
+		protected IncrementalMSD initialValue()
+		{
+			return new IncrementalMSD();
+		}
+	};
+
+	/**
+	 * Prepare a presented text.
+	 *
+	 * @param textArg
+	 *            the presented text
+	 */
+	public PresentedText(String textArg)
+	{
+		text = textArg;
+		bits = new BitParallelMSD(text);
+
+		chars = new int[text.length()];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = text.charAt(i);
+
+		words = MSDBatch.words(text);
+		wordIDs = new int[words.length];
+		wordIndex = new HashMap<String, Integer>();
+		for (int i = 0; i < words.length; i++)
+		{
+			Integer id = wordIndex.get(words[i]);
+			if (id == null)
+			{
+				id = i;
+				wordIndex.put(words[i], id);
+			}
+			wordIDs[i] = id;
+		}
+
+		int rows = text.length() + 1;
+		firstColumn = new int[rows];
+		firstCount = new double[rows];
+		firstMean = new double[rows];
+		for (int i = 0; i < rows; i++)
+		{
+			firstColumn[i] = i;
+			firstCount[i] = 1.0;
+			firstMean[i] = i;
+		}
+	}
+
+	/**
+	 * Returns the presented text.
+	 */
+	public String getText()
+	{
+		return text;
+	}
+
+	/**
+	 * Returns the length of the presented text.
+	 */
+	public int length()
+	{
+		return text.length();
+	}
+
+	/**
+	 * Return an integer equal to the minimum distance between the presented text and a transcribed text. See
+	 * <code>MSD.getMSD()</code>.
+	 */
+	public int getMSD(CharSequence transcribed)
+	{
+		return bits.distance(transcribed);
+	}
+
+	/**
+	 * Return a double equal to the text entry error rate (%). See <code>MSD.getErrorRate()</code>.
+	 */
+	public double getErrorRate(CharSequence transcribed)
+	{
+		return (double) getMSD(transcribed) / Math.max(text.length(), transcribed.length()) * 100.0;
+	}
+
+	/**
+	 * Returns the mean size of the alignment strings as a double. See <code>MSD.meanAlignmentSize()</code>.
+	 */
+	public double meanAlignmentSize(CharSequence transcribed)
+	{
+		return columns(transcribed).meanAlignmentSize();
+	}
+
+	/**
+	 * Returns the new-and-improved measure for the MSD error rate. See <code>MSD.getErrorRateNew()</code>.
+	 */
+	public double getErrorRateNew(CharSequence transcribed)
+	{
+		return columns(transcribed).getErrorRateNew();
+	}
+
+	/**
+	 * Returns the MSD2 object for the characters of a transcribed text, optionally with transpositions. See
+	 * <code>MSD2(String, String, boolean)</code>.
+	 */
+	public MSD2 getMSD2(String transcribed, boolean transpositions)
+	{
+		return new MSD2(charCollection(transcribed, transpositions));
+	}
+
+	/**
+	 * Returns the MSD2 object for the words of a transcribed text (separated by spaces), optionally with
+	 * transpositions. See <code>MSD2(Vector, Vector, boolean)</code>.
+	 */
+	public MSD2 getWordMSD2(String transcribed, boolean transpositions)
+	{
+		return new MSD2(wordCollection(transcribed, transpositions));
+	}
+
+	/**
+	 * Score many transcriptions of this text, spread over the available processors. See <code>MSDBatch</code>.
+	 *
+	 * @param transcribed
+	 *            the transcribed texts
+	 * @param options
+	 *            how the transcriptions are to be scored
+	 * @return the scores, in the same order as <code>transcribed</code>
+	 */
+	public MSDBatch.Result score(String[] transcribed, MSDBatch.Options options)
+	{
+		return MSDBatch.score(this, transcribed, options);
+	}
+
+	/*
+	 * Returns the calling thread's IncrementalMSD, holding this text and the given transcribed text.
+	 */
+	IncrementalMSD columns(CharSequence transcribed)
+	{
+		IncrementalMSD m = workspace.get();
+		m.reset(this);
+		for (int j = 0; j < transcribed.length(); j++)
+			m.append(transcribed.charAt(j));
+		return m;
+	}
+
+	MSD2.TwoStringCollection charCollection(String transcribed, boolean transpositions)
+	{
+		return new MSD2.TwoStringCollection(text, chars, transcribed, transpositions);
+	}
+
+	MSD2.WordCollection wordCollection(String transcribed, boolean transpositions)
+	{
+		// a transcribed word that is not in the presented text matches nothing
+		String[] t = MSDBatch.words(transcribed);
+		int[] ids = new int[t.length];
+		for (int j = 0; j < t.length; j++)
+		{
+			Integer id = wordIndex.get(t[j]);
+			ids[j] = id == null ? -1 : id;
+		}
+		return new MSD2.WordCollection(words, wordIDs, t, ids, transpositions);
+	}
+}
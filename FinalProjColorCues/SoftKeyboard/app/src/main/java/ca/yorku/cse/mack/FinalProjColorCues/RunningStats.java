@@ -0,0 +1,183 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * RunningStats - the count, mean, variance, minimum and maximum of a stream of values, updated one value at a time.
+ * <p>
+ *
+ * The mean and the sum of squared deviations are updated with Welford's method, which (unlike keeping the sum and the
+ * sum of squares) does not lose precision when the variance is small relative to the mean. Two RunningStats of
+ * separate streams (e.g., from two threads, or two devices) are combined with <code>merge()</code>, using the pairwise
+ * update of Chan, Golub and LeVeque; the result is the same as if one object had seen both streams, apart from
+ * rounding. Related references:
+ * <p>
+ *
+ * <ul>
+ * <li>Note on a method for calculating corrected sums of squares and products, by Welford (<i>Technometrics,
+ * 1962</i>).
+ *
+ * <li>Algorithms for computing the sample variance: Analysis and recommendations, by Chan, Golub and LeVeque (<i>The
+ * American Statistician, 1983</i>).
+ * </ul>
+ */
+public class RunningStats
+{
+	// two-sided 95% critical values of Student's t, for 1 to 30 degrees of freedom
+	private static final double[] T95 = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060,
+			2.056, 2.052, 2.048, 2.045, 2.042 };
+	private static final double Z95 = 1.959964;
+
+	private long n;
+	private double mean, m2; // m2 is the sum of squared deviations from the mean
+	private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Add a value.
+	 */
+	public void add(double x)
+	{
+		++n;
+		double delta = x - mean;
+		mean += delta / n;
+		m2 += delta * (x - mean);
+		if (x < min)
+			min = x;
+		if (x > max)
+			max = x;
+	}
+
+	/**
+	 * Add the values seen by another RunningStats to this one.
+	 */
+	public void merge(RunningStats other)
+	{
+		if (other.n == 0)
+			return;
+		if (n == 0)
+		{
+			n = other.n;
+			mean = other.mean;
+			m2 = other.m2;
+			min = other.min;
+			max = other.max;
+			return;
+		}
+		long total = n + other.n;
+		double delta = other.mean - mean;
+		mean += delta * other.n / total;
+		m2 += other.m2 + delta * delta * ((double)n * other.n / total);
+		n = total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the number of values.
+	 */
+	public long getCount()
+	{
+		return n;
+	}
+
+	/**
+	 * Returns the mean (NaN if there are no values).
+	 */
+	public double getMean()
+	{
+		return n > 0 ? mean : Double.NaN;
+	}
+
+	/**
+	 * Returns the sample variance, with n - 1 degrees of freedom (NaN if there are fewer than two values).
+	 */
+	public double getVariance()
+	{
+		return n > 1 ? m2 / (n - 1) : Double.NaN;
+	}
+
+	/**
+	 * Returns the sample standard deviation.
+	 */
+	public double getStandardDeviation()
+	{
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Returns the standard error of the mean.
+	 */
+	public double getStandardError()
+	{
+		return Math.sqrt(getVariance() / n);
+	}
+
+	/**
+	 * Returns the half-width of the 95% confidence interval of the mean, from Student's t distribution: the interval
+	 * is the mean plus or minus this value.
+	 */
+	public double getConfidenceHalfWidth()
+	{
+		if (n < 2)
+			return Double.NaN;
+		return t95(n - 1) * getStandardError();
+	}
+
+	/*
+	 * The two-sided 95% critical value of t. Beyond the table, the Cornish-Fisher expansion is good to about 1e-4.
+	 */
+	private static double t95(long df)
+	{
+		if (df <= T95.length)
+			return T95[(int)df - 1];
+		double z = Z95, z3 = z * z * z, z5 = z3 * z * z;
+		return z + (z3 + z) / (4.0 * df) + (5.0 * z5 + 16.0 * z3 + 3.0 * z) / (96.0 * df * df);
+	}
+
+	/**
+	 * Returns the smallest value (NaN if there are no values).
+	 */
+	public double getMin()
+	{
+		return n > 0 ? min : Double.NaN;
+	}
+
+	/**
+	 * Returns the largest value (NaN if there are no values).
+	 */
+	public double getMax()
+	{
+		return n > 0 ? max : Double.NaN;
+	}
+
+	/**
+	 * Write the state (40 bytes).
+	 */
+	public void write(DataOutputStream out) throws IOException
+	{
+		out.writeLong(n);
+		out.writeDouble(mean);
+		out.writeDouble(m2);
+		out.writeDouble(min);
+		out.writeDouble(max);
+	}
+
+	/**
+	 * Read a state written by <code>write()</code>.
+	 */
+	public static RunningStats read(DataInputStream in) throws IOException
+	{
+		RunningStats s = new RunningStats();
+		s.n = in.readLong();
+		s.mean = in.readDouble();
+		s.m2 = in.readDouble();
+		s.min = in.readDouble();
+		s.max = in.readDouble();
+		if (s.n < 0)
+			throw new IOException("bad count: " + s.n);
+		return s;
+	}
+}
@@ -0,0 +1,245 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * StudyAnalyzer - re-analyses the data files of a whole study, away from the device.
+ * <p>
+ *
+ * <code>ColorCuesActivity</code> writes an sd1 file (each phrase, its transcription, and the keystrokes) and an sd2 file
+ * (one line of measures per phrase) for every block. This program reads every pair of files in the given directories,
+ * re-scores each phrase with the MSD engine (see <code>MSDBatch</code>), and prints the statistics (see
+ * <code>ConditionStats</code>) of the entry speed, error rate and keystrokes per character of each condition, as
+ * comma-separated values:
+ * <p>
+ *
+ * <ul>
+ * <li>the entry speed (wpm) is taken from the sd2 file, since the sd1 file does not record the final ENTER
+ *
+ * <li>the error rate (%) is computed from the presented and transcribed phrases in the sd1 file
+ *
+ * <li>the KSPC is the number of keystrokes recorded in the sd1 file over the length of the transcribed phrase
+ *
+ * <li>the total error rate, corrected error rate and utilized bandwidth (%) come from replaying the keystrokes in the
+ * sd1 file (see <code>InputStreamErrors</code>)
+ * </ul>
+ * <p>
+ *
+ * The files are analysed on all cores (see <code>StudyFiles.analyse()</code>) and read a phrase at a time, so
+ * thousands of files of any size can be analysed. Usage:
+ *
+ * <pre>
+ *     java StudyAnalyzer [-t] [-w] [-o] [-by Participant,Layout] [-s snapshot] dir ...
+ *       -t  = treat transpositions as one error
+ *       -w  = word-level error rate
+ *       -o  = MSD over the longer text (the "old" error rate), rather than MSD.getErrorRateNew()
+ *       -by = the sd2 columns to group by (default Participant,Session,Block,Layout)
+ *       -s  = also save the statistics to a file (see ConditionStats.read())
+ * </pre>
+ */
+public class StudyAnalyzer implements StudyFiles.Analysis<ConditionStats>
+{
+	private static final String END_OF_PHRASE = "-----";
+	private static final String[] DEFAULT_GROUPS = { "Participant", "Session", "Block", "Layout" };
+
+	/**
+	 * The measures of each phrase.
+	 */
+	static final String[] MEASURES = { "Speed(wpm)", "ErrorRate(%)", "KSPC", "TotalErrorRate(%)",
+			"CorrectedErrorRate(%)", "UtilizedBandwidth(%)" };
+
+	private final File[] sd1Files;
+	private final String[] groups;
+	private final MSDBatch.Options options;
+
+	/**
+	 * Prepare to analyse the sd1 files given (each with an sd2 file of the same name).
+	 */
+	StudyAnalyzer(File[] sd1FilesArg, String[] groupsArg, MSDBatch.Options optionsArg)
+	{
+		sd1Files = sd1FilesArg;
+		groups = groupsArg;
+		options = optionsArg;
+	}
+
+	/**
+	 * Analyse all the files. Returns the statistics of each condition (the values of the group columns, separated by
+	 * commas).
+	 */
+	ConditionStats run()
+	{
+		return StudyFiles.analyse(sd1Files, this);
+	}
+
+	public ConditionStats create()
+	{
+		return new ConditionStats(groups, MEASURES);
+	}
+
+	public void merge(ConditionStats into, ConditionStats stats)
+	{
+		into.merge(stats);
+	}
+
+	/**
+	 * Read an sd1 file and its sd2 file side by side, a phrase at a time.
+	 */
+	public void analyse(File sd1File, ConditionStats stats) throws IOException
+	{
+		File sd2File = new File(sd1File.getParentFile(), StudyFiles.baseName(sd1File) + ".sd2");
+		InputStreamErrors inputStream = new InputStreamErrors();
+		BufferedReader sd1 = StudyFiles.open(sd1File);
+		try
+		{
+			BufferedReader sd2 = StudyFiles.open(sd2File);
+			try
+			{
+				String header = sd2.readLine();
+				if (header == null)
+					return; // no phrases
+				List<String> columns = Arrays.asList(header.split(","));
+				int[] groupColumn = new int[groups.length];
+				for (int g = 0; g < groups.length; g++)
+					groupColumn[g] = column(columns, groups[g], sd2File);
+				int speedColumn = column(columns, "Speed(wpm)", sd2File);
+
+				String line;
+				while ((line = sd2.readLine()) != null)
+				{
+					if (line.length() == 0)
+						continue;
+					String presented = sd1.readLine();
+					String transcribed = sd1.readLine();
+					if (transcribed == null)
+						throw new IOException("fewer phrases than in " + sd2File.getName());
+					int keystrokes = 0;
+					inputStream.reset();
+					String sample;
+					while ((sample = sd1.readLine()) != null && !sample.equals(END_OF_PHRASE))
+					{
+						++keystrokes;
+						int comma = sample.indexOf(", "); // time, key[, x, y, down]
+						if (comma >= 0)
+						{
+							int end = sample.indexOf(", ", comma + 2);
+							inputStream.keystroke(sample.substring(comma + 2, end >= 0 ? end : sample.length()));
+						}
+					}
+
+					String[] values = line.split(",");
+					StringBuilder condition = new StringBuilder();
+					for (int g = 0; g < groups.length; g++)
+					{
+						if (g > 0)
+							condition.append(',');
+						condition.append(value(values, groupColumn[g], sd2File));
+					}
+					double speed;
+					try
+					{
+						speed = Double.parseDouble(value(values, speedColumn, sd2File));
+					} catch (NumberFormatException e)
+					{
+						throw new IOException("bad speed in " + sd2File.getName() + ": " + line);
+					}
+
+					double errorRate = MSDBatch.score(presented, transcribed, options).errorRate[0];
+					InputStreamErrors.Counts counts = inputStream.getCounts(presented.length(), transcribed.length(),
+							BitParallelMSD.getMSD(presented, transcribed));
+					double kspc = transcribed.length() > 0 ? (double)keystrokes / transcribed.length() : Double.NaN;
+					stats.add(condition.toString(), speed, errorRate, kspc, counts.getTotalErrorRate(),
+							counts.getCorrectedErrorRate(), counts.getUtilizedBandwidth());
+				}
+			} finally
+			{
+				sd2.close();
+			}
+		} finally
+		{
+			sd1.close();
+		}
+	}
+
+	private static int column(List<String> columns, String name, File f) throws IOException
+	{
+		int c = columns.indexOf(name);
+		if (c < 0)
+			throw new IOException("no " + name + " column in " + f.getName());
+		return c;
+	}
+
+	private static String value(String[] values, int column, File f) throws IOException
+	{
+		if (column >= values.length)
+			throw new IOException("short line in " + f.getName());
+		return values[column].trim();
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		MSDBatch.Options options = new MSDBatch.Options(true, false, false);
+		String[] groups = DEFAULT_GROUPS;
+		String snapshot = null;
+		List<String> paths = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-t"))
+				options.transpositions = true;
+			else if (args[i].equals("-w"))
+				options.wordLevel = true;
+			else if (args[i].equals("-o"))
+				options.newErrorRate = false;
+			else if (args[i].equals("-by") && i + 1 < args.length)
+				groups = args[++i].split(",");
+			else if (args[i].equals("-s") && i + 1 < args.length)
+				snapshot = args[++i];
+			else if (args[i].startsWith("-"))
+			{
+				usage();
+				return;
+			} else
+				paths.add(args[i]);
+		}
+		if (paths.isEmpty())
+		{
+			usage();
+			return;
+		}
+
+		File[] files = StudyFiles.find(paths, ".sd1");
+		ConditionStats stats = new StudyAnalyzer(files, groups, options).run();
+		stats.print(System.out);
+		if (snapshot != null)
+		{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshot)));
+			try
+			{
+				stats.write(out);
+			} finally
+			{
+				out.close();
+			}
+		}
+		System.err.println(files.length + " files");
+	}
+
+	private static void usage()
+	{
+		System.err.println("usage: java StudyAnalyzer [-t] [-w] [-o] [-by column,...] [-s snapshot] dir ...");
+		System.err.println("  -t  = treat transpositions as one error");
+		System.err.println("  -w  = word-level error rate");
+		System.err.println("  -o  = MSD over the longer text, rather than the new-and-improved error rate");
+		System.err.println("  -by = the sd2 columns to group by (default Participant,Session,Block,Layout)");
+		System.err.println("  -s  = also save the statistics to a file (see ConditionStats.read())");
+		System.exit(1);
+	}
+}
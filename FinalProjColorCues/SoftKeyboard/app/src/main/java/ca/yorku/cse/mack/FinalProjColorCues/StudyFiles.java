@@ -0,0 +1,181 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StudyFiles - finding and reading the data files of a study, away from the device.
+ * <p>
+ *
+ * The programs that re-analyse a study (<code>StudyAnalyzer</code>, <code>TouchAnalyzer</code>,
+ * <code>FittsAnalyzer</code>) read every file of one kind in some directories. The name of a file gives its condition,
+ * as fields separated by dashes ("SoftKeyboard-P01-S01-B01-G01-C01-Qwerty.sd1"). <code>analyse()</code> hands the files
+ * out to the threads of <code>MSDThreads</code> one at a time. Each thread gathers its own statistics, and they are
+ * merged when all the files are done.
+ */
+final class StudyFiles
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The analysis of one kind of file, with statistics of type T.
+	 */
+	interface Analysis<T>
+	{
+		/**
+		 * Returns empty statistics.
+		 */
+		T create();
+
+		/**
+		 * Add a file to some statistics. A damaged file is reported with an IOException.
+		 */
+		void analyse(File file, T stats) throws IOException;
+
+		/**
+		 * Add the statistics of other files to some statistics.
+		 */
+		void merge(T into, T stats);
+	}
+
+	private StudyFiles()
+	{
+	}
+
+	/**
+	 * Analyse files on all cores. Returns the statistics of all the files. A file that cannot be read is reported on
+	 * standard error and left out.
+	 */
+	static <T> T analyse(final File[] files, final Analysis<T> analysis)
+	{
+		final AtomicInteger nextFile = new AtomicInteger();
+		final List<T> partials = new ArrayList<T>();
+		MSDThreads.run(files.length, new Runnable()
+		{
+			public void run()
+			{
+				T stats = analysis.create();
+				synchronized (partials)
+				{
+					partials.add(stats);
+				}
+
+				int k;
+				while ((k = nextFile.getAndIncrement()) < files.length)
+				{
+					try
+					{
+						analysis.analyse(files[k], stats);
+					} catch (IOException e)
+					{
+						// a damaged or unreadable block should not stop the analysis of the others
+						System.err.println("skipped " + files[k] + ": " + e.getMessage());
+					}
+				}
+			}
+		});
+
+		T all = analysis.create();
+		for (T partial : partials)
+			analysis.merge(all, partial);
+		return all;
+	}
+
+	/**
+	 * Returns the files of the given directories (and files) that end with an extension (e.g., ".sd1"), in order.
+	 */
+	static File[] find(List<String> paths, String extension)
+	{
+		List<File> files = new ArrayList<File>();
+		for (String path : paths)
+		{
+			File f = new File(path);
+			File[] list = f.isDirectory() ? f.listFiles() : new File[] { f };
+			if (list == null)
+			{
+				System.err.println("cannot read " + path);
+				continue;
+			}
+			for (File file : list)
+				if (file.isFile() && file.getName().endsWith(extension))
+					files.add(file);
+		}
+		File[] a = files.toArray(new File[files.size()]);
+		Arrays.sort(a);
+		return a;
+	}
+
+	/**
+	 * Open a file for reading, as UTF-8.
+	 */
+	static BufferedReader open(File f) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"), BUFFER_SIZE);
+	}
+
+	/**
+	 * Returns the name of a file without its extension.
+	 */
+	static String baseName(File f)
+	{
+		String name = f.getName();
+		int dot = name.lastIndexOf('.');
+		return dot < 0 ? name : name.substring(0, dot);
+	}
+
+	/**
+	 * Returns the fields of the name of a file.
+	 */
+	static String[] fields(File f)
+	{
+		return baseName(f).split("-");
+	}
+
+	/**
+	 * Returns the participant field (the first after the application, starting with "P"), or "" if there is none.
+	 */
+	static String participant(String[] fields)
+	{
+		for (int f = 1; f < fields.length; f++)
+			if (fields[f].startsWith("P"))
+				return fields[f];
+		return "";
+	}
+
+	/**
+	 * Returns the layout of a file: the one whose name is the last field, regardless of case, or the only one given.
+	 */
+	static KeyboardLayout layout(List<KeyboardLayout> layouts, String[] fields) throws IOException
+	{
+		if (layouts.size() == 1)
+			return layouts.get(0);
+		String name = fields[fields.length - 1];
+		for (KeyboardLayout layout : layouts)
+			if (layout.getName().equalsIgnoreCase(name))
+				return layout;
+		throw new IOException("no layout " + name);
+	}
+
+	/**
+	 * Read the layouts of a resource file (see <code>KeyboardLayout.read()</code>).
+	 */
+	static List<KeyboardLayout> readLayouts(String file) throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			return KeyboardLayout.read(in);
+		} finally
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TouchAnalyzer - where each participant's touches land, relative to the keys of a layout.
+ * <p>
+ *
+ * An sd3 file holds the traces of a block: a line for information only, then, for each stroke, a
+ * "Trace_data_for_&lt;label&gt;" line, the "x,y" points of the stroke (in pixels), and "END_OF_STROKE". The last point
+ * of a stroke is where the finger left the screen. This program reads the sd3 files in the given directories and,
+ * for each participant, layout and key, gathers the endpoints as online moments (see <code>PointStats</code>): the
+ * count, the centroid, its offset from the centre of the key, and the covariance. A consistent offset (e.g., touches
+ * landing below the keys of the top row) shows in the mean offset of many keys.
+ * <p>
+ *
+ * The key rectangles come from the layout resources (see <code>KeyboardLayout.read()</code>). The file name gives the
+ * participant (the field that starts with "P") and the layout (the last field); when only one layout is loaded, it is
+ * used for every file. Pixels are converted to baseline key widths with <code>-key</code> (the width of a baseline key
+ * in pixels, by default its width in dp) and <code>-origin</code> (the pixel position of the keyboard's top-left
+ * corner). Labels that are not a character of the layout (e.g., the "=E" and "#" of Graffiti) are counted and skipped.
+ * <p>
+ *
+ * The files are analysed on all cores (see <code>StudyFiles.analyse()</code>) and read a line at a time, keeping only
+ * the last point of the current stroke, so gigabytes of traces are read in a few hundred bytes per key. The output is
+ * comma-separated values, in key widths. Usage:
+ *
+ * <pre>
+ *     java TouchAnalyzer -layout res/values/qwerty.xml [-key px] [-origin x,y] dir ...
+ *       -layout = a layout resource file (may be repeated)
+ *       -key    = the width of a baseline key, in pixels
+ *       -origin = the position of the keyboard's top-left corner, in pixels
+ * </pre>
+ */
+public class TouchAnalyzer implements StudyFiles.Analysis<Map<String, PointStats>>
+{
+	private static final String TRACE_PREFIX = "Trace_data_for_";
+	private static final String END_OF_STROKE = "END_OF_STROKE";
+
+	private final File[] sd3Files;
+	private final List<KeyboardLayout> layouts;
+	private final double keyPixels; // <= 0 for each layout's baseline width
+	private final double originX, originY;
+
+	private final AtomicLong skipped = new AtomicLong();
+
+	/**
+	 * Prepare to analyse the sd3 files given.
+	 *
+	 * @param keyPixelsArg
+	 *            the width of a baseline key in pixels, or 0 for the width in the layout definition
+	 */
+	TouchAnalyzer(File[] sd3FilesArg, List<KeyboardLayout> layoutsArg, double keyPixelsArg, double originXArg,
+			double originYArg)
+	{
+		sd3Files = sd3FilesArg;
+		layouts = layoutsArg;
+		keyPixels = keyPixelsArg;
+		originX = originXArg;
+		originY = originYArg;
+	}
+
+	/**
+	 * Analyse all the files. Returns the endpoint statistics of each participant, layout and key ("P01,qwerty,12"),
+	 * in key widths from the top-left corner of the keyboard.
+	 */
+	Map<String, PointStats> run()
+	{
+		return StudyFiles.analyse(sd3Files, this);
+	}
+
+	/**
+	 * Returns the number of strokes skipped so far (labels that are not on the layout, and strokes with no points).
+	 */
+	long getSkipped()
+	{
+		return skipped.get();
+	}
+
+	public Map<String, PointStats> create()
+	{
+		return new TreeMap<String, PointStats>();
+	}
+
+	public void merge(Map<String, PointStats> into, Map<String, PointStats> stats)
+	{
+		for (Map.Entry<String, PointStats> e : stats.entrySet())
+			statsFor(into, e.getKey()).merge(e.getValue());
+	}
+
+	/**
+	 * Read an sd3 file a line at a time, adding the endpoint of each stroke.
+	 */
+	public void analyse(File sd3File, Map<String, PointStats> stats) throws IOException
+	{
+		String[] fields = StudyFiles.fields(sd3File);
+		KeyboardLayout layout = StudyFiles.layout(layouts, fields);
+		String prefix = StudyFiles.participant(fields) + "," + layout.getName() + ",";
+		double scale = keyPixels > 0 ? keyPixels : layout.getBaseWidth();
+
+		BufferedReader in = StudyFiles.open(sd3File);
+		try
+		{
+			String label = null;
+			boolean hasPoint = false;
+			int x = 0, y = 0;
+			String line;
+			while ((line = in.readLine()) != null)
+			{
+				if (line.startsWith(TRACE_PREFIX))
+				{
+					label = line.substring(TRACE_PREFIX.length());
+					hasPoint = false;
+				} else if (line.equals(END_OF_STROKE))
+				{
+					double xKey = (x - originX) / scale, yKey = (y - originY) / scale;
+					int key = label != null && hasPoint && label.length() == 1 ? layout.findKey(label.charAt(0), xKey,
+							yKey) : -1;
+					if (key >= 0)
+						statsFor(stats, prefix + key).add(xKey, yKey);
+					else
+						skipped.incrementAndGet();
+					label = null;
+				} else if (label != null)
+				{
+					int comma = line.indexOf(',');
+					if (comma < 0)
+						throw new IOException("bad point in " + sd3File.getName() + ": " + line);
+					x = parseInt(line, 0, comma, sd3File);
+					y = parseInt(line, comma + 1, line.length(), sd3File);
+					hasPoint = true;
+				}
+				// lines outside a stroke (the first line) are for information only
+			}
+		} finally
+		{
+			in.close();
+		}
+	}
+
+	/*
+	 * Integer.parseInt() of part of a line, without a substring per point.
+	 */
+	private static int parseInt(String s, int from, int to, File f) throws IOException
+	{
+		while (from < to && s.charAt(from) == ' ')
+			++from;
+		while (to > from && s.charAt(to - 1) == ' ')
+			--to;
+		boolean negative = from < to && s.charAt(from) == '-';
+		if (negative)
+			++from;
+		if (from == to)
+			throw new IOException("bad point in " + f.getName() + ": " + s);
+		int n = 0;
+		for (int i = from; i < to; i++)
+		{
+			int d = s.charAt(i) - '0';
+			if (d < 0 || d > 9)
+				throw new IOException("bad point in " + f.getName() + ": " + s);
+			n = n * 10 + d;
+		}
+		return negative ? -n : n;
+	}
+
+	private static PointStats statsFor(Map<String, PointStats> stats, String key)
+	{
+		PointStats s = stats.get(key);
+		if (s == null)
+		{
+			s = new PointStats();
+			stats.put(key, s);
+		}
+		return s;
+	}
+
+	/**
+	 * Print the statistics as comma-separated values: the participant, layout and key, the number of touches, their
+	 * centroid, its offset from the centre of the key, the standard deviations and the covariance.
+	 */
+	static void print(Map<String, PointStats> stats, List<KeyboardLayout> layouts, PrintStream out)
+	{
+		Map<String, KeyboardLayout> byName = new HashMap<String, KeyboardLayout>();
+		for (KeyboardLayout layout : layouts)
+			byName.put(layout.getName(), layout);
+
+		out.println("Participant,Layout,Key,N,MeanX,MeanY,OffsetX,OffsetY,SDX,SDY,CovXY");
+		for (Map.Entry<String, PointStats> e : stats.entrySet())
+		{
+			String[] id = e.getKey().split(",");
+			KeyboardLayout layout = byName.get(id[1]);
+			int key = Integer.parseInt(id[2]);
+			PointStats s = e.getValue();
+			out.println(String.format(Locale.CANADA, "%s,%s,%s,%d,%f,%f,%f,%f,%f,%f,%f", id[0], id[1],
+					layout.getLabel(key), s.getCount(), s.getMeanX(), s.getMeanY(),
+					s.getMeanX() - layout.getCentreX(key), s.getMeanY() - layout.getCentreY(key),
+					Math.sqrt(s.getVarianceX()), Math.sqrt(s.getVarianceY()), s.getCovariance()));
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		List<KeyboardLayout> layouts = new ArrayList<KeyboardLayout>();
+		double keyPixels = 0.0, originX = 0.0, originY = 0.0;
+		List<String> paths = new ArrayList<String>();
+
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				if (args[i].equals("-layout") && i + 1 < args.length)
+					layouts.addAll(StudyFiles.readLayouts(args[++i]));
+				else if (args[i].equals("-key") && i + 1 < args.length)
+					keyPixels = Double.parseDouble(args[++i]);
+				else if (args[i].equals("-origin") && i + 1 < args.length)
+				{
+					String[] xy = args[++i].split(",");
+					if (xy.length != 2)
+					{
+						usage();
+						return;
+					}
+					originX = Double.parseDouble(xy[0].trim());
+					originY = Double.parseDouble(xy[1].trim());
+				} else if (args[i].startsWith("-"))
+				{
+					usage();
+					return;
+				} else
+					paths.add(args[i]);
+			}
+		} catch (NumberFormatException e)
+		{
+			usage();
+			return;
+		}
+		if (paths.isEmpty() || layouts.isEmpty())
+		{
+			usage();
+			return;
+		}
+
+		File[] files = StudyFiles.find(paths, ".sd3");
+		TouchAnalyzer analyzer = new TouchAnalyzer(files, layouts, keyPixels, originX, originY);
+		print(analyzer.run(), layouts, System.out);
+		System.err.println(files.length + " files, " + analyzer.getSkipped() + " strokes skipped");
+	}
+
+	private static void usage()
+	{
+		System.err.println("usage: java TouchAnalyzer -layout file.xml [-key px] [-origin x,y] dir ...");
+		System.err.println("  -layout = a layout resource file (may be repeated)");
+		System.err.println("  -key    = the width of a baseline key, in pixels (default: its width in dp)");
+		System.err.println("  -origin = the position of the keyboard's top-left corner, in pixels");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,120 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * WavefrontMSD - fills the 'D' matrix of a long pair of texts on several processors.
+ * <p>
+ *
+ * The interior of the matrix (rows 1 to n, columns 1 to m; the first row and column are filled by the caller) is cut
+ * into square tiles. A cell depends only on the cells above it and to its left (and, for transpositions, two rows up
+ * and two columns left), so a tile can be filled once the tile above it and the tile to its left are done. Tiles on the
+ * same anti-diagonal are therefore independent, and are filled in parallel as their neighbours complete: each tile
+ * keeps a count of unfinished neighbours, and the tile that brings a count to zero submits that tile to
+ * <code>MSDThreads</code>.
+ * <p>
+ *
+ * Each tile is filled in the usual row-by-row order, so the matrix is identical to the one computed sequentially.
+ * Subclasses supply the cell computation for a tile (see <code>MSD</code> and <code>MSD2</code>).
+ */
+abstract class WavefrontMSD
+{
+	/**
+	 * Matrices with fewer interior cells than this are filled sequentially.
+	 */
+	static final long PARALLEL_THRESHOLD = 1L << 20;
+
+	private static final int TILE_SIZE = 256;
+
+	private final int n, m; // the interior is rows 1..n, columns 1..m
+	private final int tileRows, tileCols;
+	private AtomicInteger[] pending; // unfinished neighbours of each tile
+	private CountDownLatch done;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	WavefrontMSD(int nArg, int mArg)
+	{
+		n = nArg;
+		m = mArg;
+		tileRows = (n + TILE_SIZE - 1) / TILE_SIZE;
+		tileCols = (m + TILE_SIZE - 1) / TILE_SIZE;
+	}
+
+	/**
+	 * Returns true if a matrix with the given number of interior rows and columns should be filled in parallel.
+	 */
+	static boolean worthwhile(int n, int m)
+	{
+		return (long) n * m >= PARALLEL_THRESHOLD && n > TILE_SIZE && m > TILE_SIZE
+				&& MSDThreads.canParallelize();
+	}
+
+	/**
+	 * Fill rows <code>i0</code> to <code>i1 - 1</code>, columns <code>j0</code> to <code>j1 - 1</code> of the matrix,
+	 * row by row.
+	 */
+	abstract void fillTile(int i0, int i1, int j0, int j1);
+
+	/**
+	 * Fill the whole interior, returning when it is complete.
+	 */
+	void fill()
+	{
+		if (!worthwhile(n, m))
+		{
+			fillTile(1, n + 1, 1, m + 1);
+			return;
+		}
+
+		pending = new AtomicInteger[tileRows * tileCols];
+		for (int a = 0; a < tileRows; a++)
+			for (int b = 0; b < tileCols; b++)
+				pending[a * tileCols + b] = new AtomicInteger((a > 0 ? 1 : 0) + (b > 0 ? 1 : 0));
+		done = new CountDownLatch(tileRows * tileCols);
+
+		submit(MSDThreads.pool(), 0, 0);
+		try
+		{
+			done.await();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while filling the MSD matrix", e);
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+	}
+
+	private void submit(final ExecutorService pool, final int a, final int b)
+	{
+		pool.execute(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					if (failure.get() == null)
+						fillTile(1 + a * TILE_SIZE, 1 + Math.min(n, (a + 1) * TILE_SIZE), 1 + b * TILE_SIZE,
+								1 + Math.min(m, (b + 1) * TILE_SIZE));
+				} catch (Throwable t)
+				{
+					failure.compareAndSet(null, t);
+				}
+
+				// release the tiles below and to the right
+				if (a + 1 < tileRows && pending[(a + 1) * tileCols + b].decrementAndGet() == 0)
+					submit(pool, a + 1, b);
+				if (b + 1 < tileCols && pending[a * tileCols + b + 1].decrementAndGet() == 0)
+					submit(pool, a, b + 1);
+				done.countDown();
+			}
+		});
+	}
+}
@@ -0,0 +1,128 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+/**
+ * WeightedMSD - the minimum string distance when substitutions have graded costs.
+ * <p>
+ *
+ * The 'D' matrix is computed as in <code>MSD2</code>, except that a substitution costs
+ * <code>getItemCost()</code> of the collection (between 0 and 1) rather than 1. Insertions and deletions still cost 1,
+ * so a distance of 0 means the texts are the same, and a weighted distance is never more than the MSD.
+ * <p>
+ *
+ * For example, with a <code>MSD2.HierarchicalWordCollection</code>, "the quick brown fox" transcribed as "the quikc
+ * brown fox" has a word-level MSD of 1 but a weighted distance of 0.4: the misspelled word is 2 character errors in 5.
+ * The word distances are remembered in the collection's <code>MSD2.WordDistanceCache</code>, so the words of a whole
+ * study are compared pair by pair only once.
+ * <p>
+ *
+ * One optimal alignment is kept, as an explanation string using the characters of
+ * <code>MSD2.Alignment.getExplanation()</code>. Example:
+ *
+ * <pre>
+ *     MSD2.WordDistanceCache cache = new MSD2.WordDistanceCache();
+ *     WeightedMSD w = new WeightedMSD(new MSD2.HierarchicalWordCollection(words(p), words(t), false, cache));
+ *     double e = w.getErrorRate();
+ * </pre>
+ */
+public class WeightedMSD
+{
+	private final MSD2.WeightedCollection c;
+	private final int n, m; // presented and transcribed sizes
+	private final double[] d; // the 'D' matrix, row by row
+	private String explanation;
+
+	/**
+	 * Compute the weighted distance of a collection.
+	 */
+	public WeightedMSD(MSD2.WeightedCollection collection)
+	{
+		c = collection;
+		n = c.getPresentedSize();
+		m = c.getTranscribedSize();
+		int w = m + 1;
+		d = new double[(n + 1) * w];
+
+		for (int j = 0; j <= m; j++)
+			d[j] = j;
+		for (int i = 1; i <= n; i++)
+		{
+			int row = i * w;
+			d[row] = i;
+			for (int j = 1; j <= m; j++)
+			{
+				double x = Math.min(d[row - w + j], d[row + j - 1]) + 1.0;
+				x = Math.min(x, d[row - w + j - 1] + c.getItemCost(i - 1, j - 1));
+				if (i >= 2 && j >= 2)
+				{
+					int t = c.getTransposedDistance(i - 1, j - 1);
+					if (t < MSD2.MSDCollection.Infinity)
+						x = Math.min(x, d[row - 2 * w + j - 2] + t);
+				}
+				d[row + j] = x;
+			}
+		}
+	}
+
+	/**
+	 * Returns the weighted minimum string distance.
+	 */
+	public double getDistance()
+	{
+		return d[d.length - 1];
+	}
+
+	/**
+	 * Returns the weighted distance over the size of the longer text, as a percentage (see
+	 * <code>MSD.getErrorRate()</code>).
+	 */
+	public double getErrorRate()
+	{
+		return getDistance() / Math.max(Math.max(n, m), 1) * 100.0;
+	}
+
+	/**
+	 * Returns the explanation string of one optimal alignment. The steps are tried in the same order as
+	 * <code>MSD2</code>: correct, substitution, insertion, deletion, transposition.
+	 */
+	public String getExplanation()
+	{
+		if (explanation != null)
+			return explanation;
+
+		// each candidate is recomputed exactly as it was when the matrix was filled, so == is safe
+		int w = m + 1;
+		char[] ops = new char[n + m];
+		int count = 0;
+		int i = n, j = m;
+		while (i > 0 || j > 0)
+		{
+			double here = d[i * w + j];
+			if (i > 0 && j > 0 && here == d[(i - 1) * w + j - 1] + c.getItemCost(i - 1, j - 1))
+			{
+				ops[count++] = c.getItemCost(i - 1, j - 1) == 0.0 ? 'c' : 'x';
+				i--;
+				j--;
+			} else if (j > 0 && here == d[i * w + j - 1] + 1.0)
+			{
+				ops[count++] = 'i';
+				j--;
+			} else if (i > 0 && here == d[(i - 1) * w + j] + 1.0)
+			{
+				ops[count++] = 'd';
+				i--;
+			} else
+			{
+				ops[count++] = 't';
+				ops[count++] = 't';
+				i -= 2;
+				j -= 2;
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(count);
+		for (int k = count - 1; k >= 0; k--)
+			sb.append(ops[k]);
+		explanation = sb.toString();
+		return explanation;
+	}
+}
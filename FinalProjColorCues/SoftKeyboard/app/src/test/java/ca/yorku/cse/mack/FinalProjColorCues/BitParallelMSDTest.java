@@ -0,0 +1,53 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * BitParallelMSDTest - the bit-parallel distance against the plain dynamic program of <code>TestTexts</code>.
+ */
+public class BitParallelMSDTest
+{
+	@Test
+	public void matchesPlain()
+	{
+		Random random = new Random(1);
+		for (int k = 0; k < 2000; k++)
+		{
+			// up to three machine words, to cross the word boundaries
+			String s1 = TestTexts.randomText(random, random.nextInt(200), 1 + random.nextInt(4));
+			String s2 = random.nextBoolean() ? TestTexts.mistype(random, s1, random.nextInt(20)) : TestTexts
+					.randomText(random, random.nextInt(200), 4);
+			assertEquals(s1 + " / " + s2, TestTexts.plainMSD(s1, s2), BitParallelMSD.getMSD(s1, s2));
+		}
+	}
+
+	@Test
+	public void oneTextManyTranscriptions()
+	{
+		// the masks of the presented text are built once, and reused for each transcribed text
+		Random random = new Random(16);
+		for (int k = 0; k < 100; k++)
+		{
+			String p = TestTexts.randomText(random, random.nextInt(150), 4);
+			BitParallelMSD bits = new BitParallelMSD(p);
+			for (int j = 0; j < 20; j++)
+			{
+				String t = TestTexts.mistype(random, p, random.nextInt(15));
+				assertEquals(p + " / " + t, TestTexts.plainMSD(p, t), bits.distance(t));
+			}
+		}
+	}
+
+	@Test
+	public void charactersOutsideAscii()
+	{
+		String p = "crème brûlée €5";
+		String[] t = { "creme brulee €5", "crème brûlée", "èèè", "" };
+		for (String s : t)
+			assertEquals(s, TestTexts.plainMSD(p, s), BitParallelMSD.getMSD(p, s));
+	}
+}
@@ -0,0 +1,106 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * ConditionStatsTest - statistics gathered in parts, merged, summarized, or written and read back, against the same
+ * values gathered in one pass.
+ */
+public class ConditionStatsTest
+{
+	private static final String[] FIELDS = { "Participant", "Condition", "Block" };
+	private static final String[] MEASURES = { "Speed", "Error rate", "KSPC" };
+
+	private static String print(ConditionStats s)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		s.print(new PrintStream(bytes));
+		return bytes.toString();
+	}
+
+	private static void assertSameStats(ConditionStats expected, ConditionStats actual)
+	{
+		assertEquals(expected.getConditions(), actual.getConditions());
+		for (String condition : expected.getConditions())
+			for (int m = 0; m < MEASURES.length; m++)
+				RunningStatsTest.assertSameStats(expected.get(condition, m), actual.get(condition, m));
+	}
+
+	@Test
+	public void mergeAndSummarize()
+	{
+		// the phrases of a study, split between two devices
+		Random random = new Random(92);
+		ConditionStats one = new ConditionStats(FIELDS, MEASURES);
+		ConditionStats[] parts = { new ConditionStats(FIELDS, MEASURES), new ConditionStats(FIELDS, MEASURES) };
+		ConditionStats byParticipant = new ConditionStats(new String[] { "Participant" }, MEASURES);
+		for (int k = 0; k < 400; k++)
+		{
+			String participant = "P0" + random.nextInt(4);
+			String condition = participant + "," + (random.nextBoolean() ? "C" : "N") + ",B" + random.nextInt(3);
+			double[] values = { 20.0 + 5.0 * random.nextGaussian(), 10.0 * random.nextDouble(),
+					random.nextInt(10) == 0 ? Double.NaN : 1.0 + random.nextDouble() };
+			one.add(condition, values);
+			parts[random.nextInt(2)].add(condition, values);
+			byParticipant.add(participant, values);
+		}
+
+		ConditionStats merged = new ConditionStats(FIELDS, MEASURES);
+		merged.merge(parts[0]);
+		merged.merge(parts[1]);
+		assertSameStats(one, merged);
+
+		ConditionStats summary = one.summarize("Participant");
+		assertEquals(Arrays.asList("Participant"), Arrays.asList(summary.getFields()));
+		assertSameStats(byParticipant, summary);
+	}
+
+	@Test
+	public void nanIsLeftOut()
+	{
+		ConditionStats s = new ConditionStats(FIELDS, MEASURES);
+		s.add("P01,C,B1", 20.0, 0.0, Double.NaN);
+		s.add("P01,C,B1", 30.0, 5.0, 1.2);
+		assertEquals(2, s.get("P01,C,B1", 0).getCount());
+		assertEquals(1, s.get("P01,C,B1", 2).getCount());
+		assertEquals(1.2, s.get("P01,C,B1", 2).getMean(), 0.0);
+		assertEquals(0, s.get("P02,C,B1", 0).getCount());
+	}
+
+	@Test
+	public void writeThenRead() throws IOException
+	{
+		ConditionStats s = new ConditionStats(FIELDS, MEASURES);
+		s.add("P01,C,B1", 20.0, 0.0, 1.0);
+		s.add("P01,C,B1", 30.0, 5.0, 1.2);
+		s.add("P02,N,B1", 25.0, 2.0, 1.1);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		s.write(new DataOutputStream(bytes));
+		ConditionStats read = ConditionStats.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertSameStats(s, read);
+		assertEquals(print(s), print(read));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void oneValuePerMeasure()
+	{
+		new ConditionStats(FIELDS, MEASURES).add("P01,C,B1", 20.0, 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void mergeNeedsTheSameMeasures()
+	{
+		new ConditionStats(FIELDS, MEASURES).merge(new ConditionStats(FIELDS, new String[] { "Speed" }));
+	}
+}
@@ -0,0 +1,122 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * ErrorMatrixTest - the entries of a matrix against the expected counts of <code>MSD2</code>, and matrices built in
+ * parts, merged, or written and read back against one built in one pass.
+ */
+public class ErrorMatrixTest
+{
+	private static String[] presented, transcribed;
+
+	static
+	{
+		Random random = new Random(80);
+		presented = new String[300];
+		transcribed = new String[presented.length];
+		for (int k = 0; k < presented.length; k++)
+		{
+			presented[k] = TestTexts.randomText(random, random.nextInt(20), 4);
+			transcribed[k] = TestTexts.mistype(random, presented[k], random.nextInt(5));
+		}
+	}
+
+	private static String print(ErrorMatrix m)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		m.print(new PrintStream(bytes));
+		return bytes.toString();
+	}
+
+	private static ErrorMatrix addAll(int from, int to)
+	{
+		ErrorMatrix m = new ErrorMatrix();
+		for (int k = from; k < to; k++)
+			m.add(presented[k], transcribed[k], true);
+		return m;
+	}
+
+	@Test
+	public void entriesMatchExpectedCounts()
+	{
+		Random random = new Random(81);
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transpositions = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(12), 3);
+			String t = TestTexts.mistype(random, p, random.nextInt(4));
+			ErrorMatrix m = new ErrorMatrix();
+			m.add(p, t, transpositions);
+
+			MSD2.OperationCounts counts = new MSD2(new MSD2.CodePointCollection(p, t, transpositions))
+					.getExpectedOperationCounts();
+			String pair = p + " / " + t;
+			for (char op : "cxid".toCharArray())
+				assertEquals(pair + " " + op, counts.getCount(op), m.getTotal(op), 1e-9);
+			// one entry for each character of a transposition
+			assertEquals(pair, 2 * counts.getCount('t'), m.getTotal('t'), 1e-9);
+
+			assertEquals(pair, counts.getPairCount(), m.size());
+			for (int i = 0; i < counts.getPairCount(); i++)
+			{
+				char op = counts.getPairOperation(i);
+				int pc = op == 'i' ? ErrorMatrix.NONE : counts.getPairPresented(i).codePointAt(0);
+				int tc = op == 'd' ? ErrorMatrix.NONE : counts.getPairTranscribed(i).codePointAt(0);
+				assertEquals(pair, counts.getPairExpectation(i), m.get(op, pc, tc), 1e-9);
+			}
+
+			// the same entries from a whole MSD2 object, alignments and all
+			ErrorMatrix whole = new ErrorMatrix();
+			whole.add(new MSD2(new MSD2.TwoStringCollection(p, t, transpositions)));
+			assertEquals(pair, print(m), print(whole));
+		}
+	}
+
+	@Test
+	public void buildMatchesOnePass()
+	{
+		ErrorMatrix one = addAll(0, presented.length);
+		ErrorMatrix built = ErrorMatrix.build(presented, transcribed, true);
+		assertEquals(one.size(), built.size());
+		assertEquals(print(one), print(built));
+	}
+
+	@Test
+	public void mergeMatchesOnePass()
+	{
+		ErrorMatrix merged = addAll(100, 300);
+		merged.merge(addAll(0, 100));
+		merged.merge(new ErrorMatrix());
+		ErrorMatrix one = addAll(0, presented.length);
+		assertEquals(one.size(), merged.size());
+		assertEquals(print(one), print(merged));
+	}
+
+	@Test
+	public void writeThenRead() throws IOException
+	{
+		ErrorMatrix m = addAll(0, presented.length);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		m.write(new DataOutputStream(bytes));
+		ErrorMatrix read = ErrorMatrix.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(m.size(), read.size());
+		assertEquals(print(m), print(read));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownOperation()
+	{
+		new ErrorMatrix().add('q', 'a', 'b', 1.0);
+	}
+}
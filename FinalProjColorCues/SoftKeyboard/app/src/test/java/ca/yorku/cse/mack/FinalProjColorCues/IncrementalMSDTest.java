@@ -0,0 +1,95 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * IncrementalMSDTest - the live scores of a text typed with corrections against <code>MSD</code> of the text as it
+ * stands after each keystroke.
+ */
+public class IncrementalMSDTest
+{
+	/*
+	 * The scores of the live object must be those of a new MSD of the same texts.
+	 */
+	private static void check(String presented, String transcribed, IncrementalMSD live)
+	{
+		String pair = presented + " / " + transcribed;
+		MSD msd = new MSD(presented, transcribed);
+		assertEquals(transcribed, live.getTranscribed());
+		assertEquals(transcribed.length(), live.getTranscribedLength());
+		assertEquals(pair, msd.getMSD(), live.getMSD());
+		assertEquals(pair, msd.getErrorRate(), live.getErrorRate(), 1e-12);
+
+		// the counts are rescaled at different points, so the last digits may differ
+		double size = msd.meanAlignmentSize();
+		assertEquals(pair, size, live.meanAlignmentSize(), 1e-9 * size);
+		assertEquals(pair, msd.getErrorRateNew(), live.getErrorRateNew(), 1e-9);
+	}
+
+	@Test
+	public void matchesMSDAfterEachKeystroke()
+	{
+		Random random = new Random(21);
+		IncrementalMSD live = new IncrementalMSD();
+		for (int phrase = 0; phrase < 100; phrase++)
+		{
+			String presented = TestTexts.randomText(random, random.nextInt(30), 3);
+			live.reset(presented);
+			assertEquals(presented, live.getPresented());
+			check(presented, "", live);
+
+			StringBuilder typed = new StringBuilder();
+			for (int key = 0; key < 60; key++)
+			{
+				if (typed.length() > 0 && random.nextInt(4) == 0)
+				{
+					live.deleteLast();
+					typed.setLength(typed.length() - 1);
+				} else
+				{
+					char c = TestTexts.ALPHABET.charAt(random.nextInt(3));
+					live.append(c);
+					typed.append(c);
+				}
+				check(presented, typed.toString(), live);
+			}
+		}
+	}
+
+	@Test
+	public void matchesMSDOfLongTexts()
+	{
+		// long enough for the path counts to be rescaled
+		Random random = new Random(22);
+		String presented = TestTexts.randomText(random, 700, 2);
+		String transcribed = TestTexts.mistype(random, presented, 150);
+		IncrementalMSD live = new IncrementalMSD(presented);
+		for (int j = 0; j < transcribed.length(); j++)
+			live.append(transcribed.charAt(j));
+		check(presented, transcribed, live);
+		for (int j = 0; j < 50; j++)
+			live.deleteLast();
+		check(presented, transcribed.substring(0, transcribed.length() - 50), live);
+	}
+
+	@Test
+	public void typingThePhrase()
+	{
+		IncrementalMSD live = new IncrementalMSD("the cat");
+		live.deleteLast(); // nothing to erase
+		assertEquals(0, live.getTranscribedLength());
+		for (char c : "the cat".toCharArray())
+			live.append(c);
+		assertEquals(0, live.getMSD());
+		assertEquals(0.0, live.getErrorRate(), 0.0);
+		assertTrue(live.matches("the cat", "the cat"));
+		assertFalse(live.matches("the cat", "the ca"));
+		assertFalse(live.matches("the dog", "the cat"));
+	}
+}
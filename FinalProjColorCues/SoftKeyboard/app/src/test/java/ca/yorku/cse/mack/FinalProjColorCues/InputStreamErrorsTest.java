@@ -0,0 +1,67 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * InputStreamErrorsTest - the classification of the keystrokes of a few phrases worked out by hand.
+ */
+public class InputStreamErrorsTest
+{
+	private static InputStreamErrors replay(String... labels)
+	{
+		InputStreamErrors e = new InputStreamErrors();
+		for (String label : labels)
+			e.keystroke(label);
+		return e;
+	}
+
+	@Test
+	public void correctedError()
+	{
+		// "the cat", with the "r" typed for the "e" erased
+		InputStreamErrors e = replay("t", "h", "r", "Bksp", "e", "Space", "c", "a", "t", "Enter");
+		assertEquals(1, e.getIncorrectFixed());
+		assertEquals(1, e.getFixes());
+
+		InputStreamErrors.Counts c = e.getCounts(7, 7, 0);
+		assertEquals(7, c.correct);
+		assertEquals(0, c.incorrectNotFixed);
+		assertEquals(1, c.incorrectFixed);
+		assertEquals(1, c.fixes);
+		assertEquals(100.0 / 8, c.getTotalErrorRate(), 1e-12);
+		assertEquals(100.0 / 8, c.getCorrectedErrorRate(), 1e-12);
+		assertEquals(0.0, c.getNotCorrectedErrorRate(), 0.0);
+		assertEquals(700.0 / 9, c.getUtilizedBandwidth(), 1e-12);
+		assertEquals(200.0 / 9, c.getWastedBandwidth(), 1e-12);
+	}
+
+	@Test
+	public void errorNotCorrected()
+	{
+		// "quick" entered as "quikc" (MSD 2)
+		InputStreamErrors e = replay("q", "u", "i", "k", "c");
+		InputStreamErrors.Counts c = e.getCounts(5, 5, 2);
+		assertEquals(3, c.correct);
+		assertEquals(2, c.incorrectNotFixed);
+		assertEquals(0, c.incorrectFixed);
+		assertEquals(40.0, c.getTotalErrorRate(), 1e-12);
+		assertEquals(40.0, c.getNotCorrectedErrorRate(), 1e-12);
+	}
+
+	@Test
+	public void backspaceOnNothing()
+	{
+		// a fix, but no character was erased
+		InputStreamErrors e = replay("Bksp", "a");
+		assertEquals(1, e.getFixes());
+		assertEquals(0, e.getIncorrectFixed());
+
+		e.reset();
+		assertEquals(0, e.getFixes());
+		InputStreamErrors.Counts c = e.getCounts(0, 0, 0);
+		assertEquals(0.0, c.getTotalErrorRate(), 0.0);
+		assertEquals(0.0, c.getUtilizedBandwidth(), 0.0);
+	}
+}
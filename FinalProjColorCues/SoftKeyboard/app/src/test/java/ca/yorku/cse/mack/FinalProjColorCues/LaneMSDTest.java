@@ -0,0 +1,52 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * LaneMSDTest - the distances of pairs scored side by side against the plain dynamic program of
+ * <code>TestTexts</code>.
+ */
+public class LaneMSDTest
+{
+	@Test
+	public void lanesMatchPlain()
+	{
+		Random random = new Random(2);
+		for (int batch = 0; batch < 50; batch++)
+		{
+			// a mix of short pairs (run in lanes), empty texts, and pairs too long for a lane
+			int size = 1 + random.nextInt(100);
+			String[] p = new String[size];
+			String[] t = new String[size];
+			for (int k = 0; k < size; k++)
+			{
+				p[k] = TestTexts.randomText(random, random.nextInt(random.nextInt(10) == 0 ? 150 : 40), 4);
+				t[k] = TestTexts.mistype(random, p[k], random.nextInt(8));
+			}
+
+			int[] msd = LaneMSD.getMSD(p, t);
+			for (int k = 0; k < size; k++)
+				assertEquals(p[k] + " / " + t[k], TestTexts.plainMSD(p[k], t[k]), msd[k]);
+		}
+	}
+
+	@Test
+	public void charactersOutsideAscii()
+	{
+		String[] p = { "crème brûlée", "€5 off", "naïve" };
+		String[] t = { "creme brulee", "€5 of", "" };
+		int[] msd = LaneMSD.getMSD(p, t);
+		for (int k = 0; k < p.length; k++)
+			assertEquals(p[k] + " / " + t[k], TestTexts.plainMSD(p[k], t[k]), msd[k]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void lengthsMustMatch()
+	{
+		LaneMSD.getMSD(new String[] { "a" }, new String[0]);
+	}
+}
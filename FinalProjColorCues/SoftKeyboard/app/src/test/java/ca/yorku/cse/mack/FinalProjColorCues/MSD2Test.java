@@ -0,0 +1,455 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+/**
+ * MSD2Test - the 'D' matrix and the alignments of <code>MSD2</code> against the plain dynamic program of
+ * <code>TestTexts</code>, and against the alignments enumerated one by one.
+ * <p>
+ *
+ * Short texts over two or three letters have many optimal alignments, so every alignment is kept and the values
+ * computed from the matrix can be compared with the alignments themselves.
+ */
+public class MSD2Test
+{
+	// enough to keep every alignment of the short texts, so none are sampled
+	private static final int ALL_ALIGNMENTS = 1 << 20;
+
+	/*
+	 * A collection that is not a TokenCollection, so MSD2 calls getItemDistance() and getTransposedDistance().
+	 */
+	private static MSD2.MSDCollection plainCollection(final String p, final String t, final boolean transposes)
+	{
+		return new MSD2.MSDCollection()
+		{
+			public int getPresentedSize()
+			{
+				return p.length();
+			}
+
+			public String getPresentedItem(int index)
+			{
+				return p.substring(index, index + 1);
+			}
+
+			public int getTranscribedSize()
+			{
+				return t.length();
+			}
+
+			public String getTranscribedItem(int index)
+			{
+				return t.substring(index, index + 1);
+			}
+
+			public int getItemDistance(int i, int j)
+			{
+				return p.charAt(i) == t.charAt(j) ? 0 : 1;
+			}
+
+			public int getTransposedDistance(int i, int j)
+			{
+				if (transposes && i >= 1 && j >= 1 && p.charAt(i - 1) == t.charAt(j) && p.charAt(i) == t.charAt(j - 1))
+					return 1;
+				return Infinity;
+			}
+		};
+	}
+
+	/*
+	 * The number of steps of each kind in an alignment (c, i, d, x, t), a transposition counting once.
+	 */
+	private static double[] operations(MSD2.Alignment a)
+	{
+		double[] ops = new double[5];
+		String e = a.getExplanation();
+		for (int k = 0; k < e.length(); k++)
+			ops["cidxt".indexOf(e.charAt(k))] += e.charAt(k) == 't' ? 0.5 : 1.0;
+		return ops;
+	}
+
+	private static double errors(MSD2.Alignment a)
+	{
+		double[] ops = operations(a);
+		return ops[1] + ops[2] + ops[3] + ops[4];
+	}
+
+	/*
+	 * The steps of an alignment must be those of a path through the matrix of these two texts.
+	 */
+	private static void assertPath(String p, String t, MSD2.Alignment a)
+	{
+		String e = a.getExplanation();
+		int x = 0, y = 0;
+		for (int i = 0; i < e.length(); i++)
+		{
+			switch (e.charAt(i))
+			{
+				case 'c':
+					assertEquals(e, p.charAt(x++), t.charAt(y++));
+					break;
+				case 'x':
+					assertTrue(e, p.charAt(x++) != t.charAt(y++));
+					break;
+				case 'i':
+					++y;
+					break;
+				case 'd':
+					++x;
+					break;
+				default:
+					// the two steps of a transposition
+					assertEquals(e, 't', e.charAt(++i));
+					assertEquals(e, p.charAt(x), t.charAt(y + 1));
+					assertEquals(e, p.charAt(x + 1), t.charAt(y));
+					x += 2;
+					y += 2;
+			}
+		}
+		assertEquals(e, p.length(), x);
+		assertEquals(e, t.length(), y);
+	}
+
+	/*
+	 * An alignment must spell the two texts, and each step must agree with the items it aligns.
+	 */
+	private static void assertSpells(String p, String t, MSD2.Alignment a)
+	{
+		StringBuilder presented = new StringBuilder();
+		StringBuilder transcribed = new StringBuilder();
+		String e = a.getExplanation();
+		for (int i = 0; i < a.getAlignedPresentedSize(); i++)
+		{
+			String pi = a.getAlignedPresentedItem(i), ti = a.getAlignedTranscribedItem(i);
+			if (!pi.equals("-"))
+				presented.append(pi);
+			if (!ti.equals("-"))
+				transcribed.append(ti);
+			char op = e.charAt(i);
+			assertEquals(e, op == 'i', pi.equals("-"));
+			assertEquals(e, op == 'd', ti.equals("-"));
+			if (op == 'c' || op == 'x')
+				assertEquals(e, op == 'c', pi.equals(ti));
+		}
+		assertEquals(e, p, presented.toString());
+		assertEquals(e, t, transcribed.toString());
+	}
+
+	@Test
+	public void alignmentCountMatchesEnumeration()
+	{
+		Random random = new Random(14);
+		for (int k = 0; k < 500; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(9), 2);
+			String t = TestTexts.randomText(random, random.nextInt(9), 2);
+			MSD2 m = new MSD2(new MSD2.TwoStringCollection(p, t, transposes), ALL_ALIGNMENTS);
+
+			assertFalse(m.isAlignmentSample());
+			long count = TestTexts.countPaths(p, t, transposes);
+			assertEquals(p + " / " + t, count, m.getAlignmentVectorSize());
+			assertEquals(p + " / " + t, count, m.getOptimalAlignmentCount());
+			HashSet<String> seen = new HashSet<String>();
+			for (MSD2.Alignment a : m.getAlignmentVector())
+			{
+				assertEquals(p + " / " + t, m.getMSD(), errors(a), 0.0);
+				assertTrue(p + " / " + t, seen.add(a.getExplanation()));
+			}
+
+			// a sample is drawn from the same alignments, with the same count
+			if (count > 2)
+			{
+				MSD2 sample = new MSD2(new MSD2.TwoStringCollection(p, t, transposes), 2);
+				assertTrue(sample.isAlignmentSample());
+				assertEquals(p + " / " + t, count, sample.getOptimalAlignmentCount());
+				assertEquals(2, sample.getAlignmentVectorSize());
+				for (MSD2.Alignment a : sample.getAlignmentVector())
+					assertTrue(p + " / " + t, seen.contains(a.getExplanation()));
+			}
+		}
+	}
+
+	@Test
+	public void sampleIsReproducible()
+	{
+		// texts with far more optimal alignments than are kept
+		Random random = new Random(17);
+		for (int k = 0; k < 50; k++)
+		{
+			String p = TestTexts.randomText(random, 12 + random.nextInt(6), 2);
+			String t = TestTexts.randomText(random, 12 + random.nextInt(6), 2);
+			MSD2 a = new MSD2(new MSD2.TwoStringCollection(p, t, false), 5);
+			MSD2 b = new MSD2(new MSD2.TwoStringCollection(p, t, false), 5);
+			if (!a.isAlignmentSample())
+				continue;
+
+			assertEquals(p + " / " + t, TestTexts.countPaths(p, t, false), a.getOptimalAlignmentCount());
+			assertEquals(5, a.getAlignmentVectorSize());
+			HashSet<String> seen = new HashSet<String>();
+			for (int i = 0; i < 5; i++)
+			{
+				String e = a.getAlignment(i).getExplanation();
+				assertEquals(e, b.getAlignment(i).getExplanation());
+				assertEquals(p + " / " + t, a.getMSD(), errors(a.getAlignment(i)), 0.0);
+				assertTrue(e, seen.add(e));
+			}
+		}
+	}
+
+	@Test
+	public void distanceMatchesPlain()
+	{
+		Random random = new Random(11);
+		MSD2 rows = new MSD2();
+		for (int k = 0; k < 500; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(30), 3);
+			String t = TestTexts.mistype(random, p, random.nextInt(6));
+			int d = TestTexts.plainMatrix(p, t, transposes)[p.length()][t.length()];
+
+			assertEquals(p + " / " + t, d, new MSD2(new MSD2.TwoStringCollection(p, t, transposes)).getMSD());
+			assertEquals(p + " / " + t, d, new MSD2(new MSD2.CodePointCollection(p, t, transposes)).getMSD());
+			assertEquals(p + " / " + t, d, new MSD2(plainCollection(p, t, transposes)).getMSD());
+
+			// the distance alone, from rolling rows
+			assertEquals(p + " / " + t, d, rows.rollingMSD(new MSD2.TwoStringCollection(p, t, transposes)));
+			assertEquals(p + " / " + t, d, rows.rollingMSD(plainCollection(p, t, transposes)));
+		}
+	}
+
+	@Test
+	public void codePointIsOneItem()
+	{
+		// a character outside the Basic Multilingual Plane is two chars of a String
+		String p = "na😀ve", t = "nave";
+		assertEquals(2, new MSD2(new MSD2.TwoStringCollection(p, t, false)).getMSD());
+		MSD2 m = new MSD2(new MSD2.CodePointCollection(p, t, false));
+		assertEquals(1, m.getMSD());
+		assertEquals("😀", m.getPresentedItem(2));
+	}
+
+	@Test
+	public void wordsMatchPlain()
+	{
+		// each word is coded as one character, so the words can be compared with the plain program
+		String[] vocabulary = { "the", "cat", "sat", "on", "mat" };
+		Random random = new Random(18);
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			Vector<String> p = new Vector<String>(), t = new Vector<String>();
+			StringBuilder pCode = new StringBuilder(), tCode = new StringBuilder();
+			for (int i = random.nextInt(8); i > 0; i--)
+			{
+				int w = random.nextInt(vocabulary.length);
+				p.add(vocabulary[w]);
+				pCode.append((char)('A' + w));
+			}
+			for (int i = random.nextInt(8); i > 0; i--)
+			{
+				int w = random.nextInt(vocabulary.length);
+				t.add(vocabulary[w]);
+				tCode.append((char)('A' + w));
+			}
+			int d = TestTexts.plainMatrix(pCode.toString(), tCode.toString(), transposes)[p.size()][t.size()];
+
+			String pair = p + " / " + t;
+			assertEquals(pair, d, new MSD2(p, t, transposes).getMSD());
+			MSD2.SymbolTable symbols = new MSD2.SymbolTable();
+			assertEquals(pair, d, new MSD2(new MSD2.WordCollection(p.toArray(new String[p.size()]), t
+					.toArray(new String[t.size()]), transposes, symbols)).getMSD());
+		}
+	}
+
+	@Test
+	public void wavefrontMatchesPlain()
+	{
+		// large enough to be filled in tiles, through both the token and the general cell computation
+		Random random = new Random(12);
+		String p = TestTexts.randomText(random, 1400, 3);
+		String t = TestTexts.mistype(random, p, 250);
+
+		for (int k = 0; k < 2; k++)
+		{
+			boolean transposes = k == 1;
+			int[][] d = TestTexts.plainMatrix(p, t, transposes);
+			MSD2[] msd = { new MSD2(new MSD2.TwoStringCollection(p, t, transposes), 1),
+					new MSD2(plainCollection(p, t, transposes), 1) };
+			for (MSD2 m : msd)
+			{
+				assertEquals(d[p.length()][t.length()], m.getMSD());
+				for (int i = 0; i <= p.length(); i += 7)
+					for (int j = 0; j <= t.length(); j += 5)
+						assertEquals(d[i][j], m.getMatrixEntry(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void reusedWorkspaceMatchesNew()
+	{
+		// texts that grow and shrink, through both the token and the general cell computation
+		Random random = new Random(21);
+		MSD2 reused = new MSD2();
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(12), 3);
+			String t = TestTexts.mistype(random, p, random.nextInt(4));
+			int[][] d = TestTexts.plainMatrix(p, t, transposes);
+			MSD2.MSDCollection c = random.nextBoolean() ? new MSD2.TwoStringCollection(p, t, transposes)
+					: plainCollection(p, t, transposes);
+
+			assertSame(reused, reused.reset(c, ALL_ALIGNMENTS));
+			for (int i = 0; i <= p.length(); i++)
+				for (int j = 0; j <= t.length(); j++)
+					assertEquals(d[i][j], reused.getMatrixEntry(i, j));
+			assertEquals(p + " / " + t, TestTexts.countPaths(p, t, transposes), reused.getOptimalAlignmentCount());
+
+			MSD2 fresh = new MSD2(c, ALL_ALIGNMENTS);
+			assertEquals(fresh.getAlignmentVectorSize(), reused.getAlignmentVectorSize());
+			for (int a = 0; a < fresh.getAlignmentVectorSize(); a++)
+				assertEquals(fresh.getAlignment(a).getExplanation(), reused.getAlignment(a).getExplanation());
+			assertEquals(p + " / " + t, fresh.getAverageAlignmentLength(), reused.getAverageAlignmentLength(), 1e-9);
+			assertEquals(p + " / " + t, fresh.getExpectedOperationCounts().getCount('x'),
+					reused.getExpectedOperationCounts().getCount('x'), 1e-9);
+		}
+		assertSame(MSD2.forThread(), MSD2.forThread());
+	}
+
+	@Test
+	public void linearSpaceMatchesFullMatrix()
+	{
+		Random random = new Random(13);
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			int length = random.nextInt(20) == 0 ? 500 + random.nextInt(500) : random.nextInt(40);
+			String p = TestTexts.randomText(random, length, 3);
+			String t = TestTexts.mistype(random, p, random.nextInt(length / 5 + 3));
+			int d = TestTexts.plainMatrix(p, t, transposes)[p.length()][t.length()];
+
+			// the one alignment must be an optimal one, of these two texts
+			MSD2 m = MSD2.linearSpace(new MSD2.TwoStringCollection(p, t, transposes));
+			assertEquals(p + " / " + t, d, m.getMSD());
+			assertEquals(1, m.getAlignmentVectorSize());
+			assertEquals(p + " / " + t, d, errors(m.getAlignment(0)), 0.0);
+			assertPath(p, t, m.getAlignment(0));
+			assertSpells(p, t, m.getAlignment(0));
+
+			// the mean length is that of every optimal alignment, not of the one kept
+			MSD2 full = new MSD2(new MSD2.TwoStringCollection(p, t, transposes));
+			double mean = full.getExpectedOperationCounts().getMeanExplanationLength();
+			assertEquals(p + " / " + t, mean, m.getAverageAlignmentLength(), 1e-6);
+			assertEquals(p + " / " + t, d / mean * 100.0, m.getErrorRateNew(), 1e-6);
+			if (!full.isAlignmentSample())
+				assertEquals(p + " / " + t, full.getAverageAlignmentLength(), m.getAverageAlignmentLength(), 1e-9);
+		}
+	}
+
+	@Test
+	public void alignmentsSpellTheTexts()
+	{
+		Random random = new Random(19);
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(9), 3);
+			String t = TestTexts.randomText(random, random.nextInt(9), 3);
+			MSD2 m = new MSD2(new MSD2.TwoStringCollection(p, t, transposes), ALL_ALIGNMENTS);
+			for (MSD2.Alignment a : m.getAlignmentVector())
+			{
+				assertPath(p, t, a);
+				assertSpells(p, t, a);
+				assertEquals(p.length(), a.getPathPresentedIndex(a.getExplanationLength()));
+				assertEquals(t.length(), a.getPathTranscribedIndex(a.getExplanationLength()));
+			}
+		}
+	}
+
+	@Test
+	public void expectedCountsMatchEnumeration()
+	{
+		Random random = new Random(15);
+		for (int k = 0; k < 500; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(9), 2 + random.nextInt(2));
+			String t = TestTexts.randomText(random, random.nextInt(9), 2 + random.nextInt(2));
+			MSD2 m = new MSD2(new MSD2.TwoStringCollection(p, t, transposes), ALL_ALIGNMENTS);
+
+			double[] mean = new double[5];
+			for (MSD2.Alignment a : m.getAlignmentVector())
+			{
+				double[] ops = operations(a);
+				for (int o = 0; o < ops.length; o++)
+					mean[o] += ops[o] / m.getAlignmentVectorSize();
+			}
+
+			MSD2.OperationCounts counts = m.getExpectedOperationCounts();
+			for (int o = 0; o < mean.length; o++)
+				assertEquals(p + " / " + t + " " + "cidxt".charAt(o), mean[o], counts.getCount("cidxt".charAt(o)), 1e-9);
+			assertEquals(p + " / " + t, m.getAverageAlignmentLength(), counts.getMeanExplanationLength(), 1e-9);
+			assertEquals(p + " / " + t, m.getMSD(), counts.getErrorCount(), 1e-9);
+		}
+	}
+
+	@Test
+	public void pairExpectationsMatchEnumeration()
+	{
+		Random random = new Random(20);
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String p = TestTexts.randomText(random, random.nextInt(9), 3);
+			String t = TestTexts.randomText(random, random.nextInt(9), 3);
+			MSD2 m = new MSD2(new MSD2.TwoStringCollection(p, t, transposes), ALL_ALIGNMENTS);
+
+			// each aligned pair of items, weighted 1 / (number of alignments)
+			HashMap<String, Double> expected = new HashMap<String, Double>();
+			for (MSD2.Alignment a : m.getAlignmentVector())
+			{
+				String e = a.getExplanation();
+				for (int i = 0; i < e.length(); i++)
+				{
+					String key = e.charAt(i) + a.getAlignedPresentedItem(i) + "/" + a.getAlignedTranscribedItem(i);
+					Double w = expected.get(key);
+					expected.put(key, (w == null ? 0.0 : w) + 1.0 / m.getAlignmentVectorSize());
+				}
+			}
+
+			MSD2.OperationCounts counts = m.getExpectedOperationCounts();
+			assertEquals(p + " / " + t, expected.size(), counts.getPairCount());
+			for (int i = 0; i < counts.getPairCount(); i++)
+			{
+				String key = counts.getPairOperation(i) + counts.getPairPresented(i) + "/"
+						+ counts.getPairTranscribed(i);
+				assertTrue(p + " / " + t + " " + key, expected.containsKey(key));
+				assertEquals(p + " / " + t + " " + key, expected.get(key), counts.getPairExpectation(i), 1e-9);
+			}
+
+			// a collection without tokens has its elements numbered as they are seen, to the same effect
+			MSD2.OperationCounts plain = new MSD2(plainCollection(p, t, transposes), 1).getExpectedOperationCounts();
+			assertEquals(p + " / " + t, counts.getPairCount(), plain.getPairCount());
+			for (int i = 0; i < counts.getPairCount(); i++)
+			{
+				assertEquals(counts.getPairOperation(i), plain.getPairOperation(i));
+				assertEquals(counts.getPairPresented(i), plain.getPairPresented(i));
+				assertEquals(counts.getPairTranscribed(i), plain.getPairTranscribed(i));
+				assertEquals(counts.getPairExpectation(i), plain.getPairExpectation(i), 1e-9);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+import org.junit.Test;
+
+/**
+ * MSDBatchTest - the scores of a batch, under each combination of options, against scoring the pairs one at a time
+ * with <code>MSD</code> and <code>MSD2</code>.
+ */
+public class MSDBatchTest
+{
+	private static Vector<String> words(String s)
+	{
+		Vector<String> w = new Vector<String>();
+		StringTokenizer st = new StringTokenizer(s, " ");
+		while (st.hasMoreTokens())
+			w.add(st.nextToken());
+		return w;
+	}
+
+	/*
+	 * Check the score of one pair against the class that computes it on its own.
+	 */
+	static void checkPair(String p, String t, MSDBatch.Options options, int msd, double errorRate)
+	{
+		String pair = p + " / " + t;
+		if (!options.transpositions && !options.wordLevel)
+		{
+			MSD m = new MSD(p, t);
+			assertEquals(pair, m.getMSD(), msd);
+			assertEquals(pair, options.newErrorRate ? m.getErrorRateNew() : m.getErrorRate(), errorRate, 1e-9);
+			return;
+		}
+
+		MSD2 m = options.wordLevel ? new MSD2(words(p), words(t), options.transpositions) : new MSD2(p, t,
+				options.transpositions);
+		int longest = options.wordLevel ? Math.max(words(p).size(), words(t).size()) : Math.max(p.length(), t
+				.length());
+		assertEquals(pair, m.getMSD(), msd);
+		assertEquals(pair, options.newErrorRate ? m.getErrorRateNew() : (double)m.getMSD() / longest * 100.0,
+				errorRate, 1e-9);
+	}
+
+	@Test
+	public void matchesOneAtATime()
+	{
+		// more pairs than one chunk, with empty texts among them
+		Random random = new Random(30);
+		int n = 600;
+		String[] p = new String[n];
+		String[] t = new String[n];
+		List<StringPair> pairs = new ArrayList<StringPair>();
+		for (int k = 0; k < n; k++)
+		{
+			p[k] = TestTexts.randomText(random, random.nextInt(30), 4);
+			t[k] = TestTexts.mistype(random, p[k], random.nextInt(6));
+			StringPair sp = new StringPair();
+			sp.s1 = p[k];
+			sp.s2 = t[k];
+			pairs.add(sp);
+		}
+
+		for (int o = 0; o < 8; o++)
+		{
+			MSDBatch.Options options = new MSDBatch.Options((o & 1) != 0, (o & 2) != 0, (o & 4) != 0);
+			MSDBatch.Result r = MSDBatch.score(p, t, options);
+			MSDBatch.Result list = MSDBatch.score(pairs, options);
+			for (int k = 0; k < n; k++)
+			{
+				checkPair(p[k], t[k], options, r.msd[k], r.errorRate[k]);
+				assertEquals(r.msd[k], list.msd[k]);
+				assertEquals(r.errorRate[k], list.errorRate[k], 0.0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void lengthsMustMatch()
+	{
+		MSDBatch.score(new String[2], new String[3], new MSDBatch.Options());
+	}
+}
@@ -0,0 +1,86 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * MSDCacheTest - the cached scores against <code>MSD</code>, and the counts of hits, misses and evictions.
+ */
+public class MSDCacheTest
+{
+	@Test
+	public void scoresMatchMSD()
+	{
+		// identical texts, single blocks of insertions or deletions, and other errors, with some pairs repeated
+		Random random = new Random(60);
+		MSDCache cache = new MSDCache(50);
+		for (int k = 0; k < 2000; k++)
+		{
+			String s1 = TestTexts.randomText(random, random.nextInt(30), 4);
+			String s2;
+			switch (random.nextInt(4))
+			{
+				case 0:
+					s2 = s1;
+					break;
+				case 1:
+					int from = random.nextInt(s1.length() + 1);
+					s2 = s1.substring(0, from) + s1.substring(from + random.nextInt(s1.length() - from + 1));
+					break;
+				case 2:
+					s2 = TestTexts.randomText(random, random.nextInt(4), 4) + s1;
+					break;
+				default:
+					s2 = TestTexts.mistype(random, s1, random.nextInt(6));
+			}
+			if (random.nextBoolean())
+			{
+				String swap = s1;
+				s1 = s2;
+				s2 = swap;
+			}
+
+			for (int repeat = 0; repeat < 2; repeat++)
+			{
+				String pair = s1 + " / " + s2;
+				MSD msd = new MSD(s1, s2);
+				assertEquals(pair, msd.getMSD(), cache.getMSD(s1, s2));
+				assertEquals(pair, msd.getErrorRate(), cache.getErrorRate(s1, s2), 1e-12);
+				assertEquals(pair, msd.getErrorRateNew(), cache.getErrorRateNew(s1, s2), 1e-9);
+			}
+		}
+		assertTrue(cache.size() <= cache.getCapacity());
+	}
+
+	@Test
+	public void countsHitsMissesAndEvictions()
+	{
+		MSDCache cache = new MSDCache(2);
+		MSDCache.Score ab = cache.score("a", "b");
+		assertSame(ab, cache.score("a", "b"));
+		cache.score("c", "d");
+		cache.score("e", "f"); // the least recently used pair ("a", "b") is evicted
+		cache.score("a", "b");
+		cache.score("same", "same");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(1, cache.getIdenticalCount());
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void capacityMustBePositive()
+	{
+		new MSDCache(0);
+	}
+}
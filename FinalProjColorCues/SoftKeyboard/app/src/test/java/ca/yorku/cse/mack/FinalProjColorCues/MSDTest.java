@@ -0,0 +1,163 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * MSDTest - the distances and alignments of <code>MSD</code> against the plain dynamic program of
+ * <code>TestTexts</code>, and the mean alignment size against the alignments themselves.
+ */
+public class MSDTest
+{
+	@Test
+	public void meanAlignmentSizeMatchesAlignments()
+	{
+		Random random = new Random(5);
+		for (int k = 0; k < 300; k++)
+		{
+			String s1 = TestTexts.randomText(random, random.nextInt(9), 2 + random.nextInt(2));
+			String s2 = TestTexts.randomText(random, random.nextInt(9), 2 + random.nextInt(2));
+			MSD msd = new MSD(s1, s2);
+
+			StringPair[] alignments = msd.getAlignments();
+			double sum = 0.0;
+			for (StringPair a : alignments)
+				sum += a.s1.length();
+			assertEquals(s1 + " / " + s2, sum / alignments.length, msd.meanAlignmentSize(), 1e-9);
+		}
+	}
+
+	@Test
+	public void meanAlignmentSizeOfLongTexts()
+	{
+		// the path counts of texts this long overflow a double unless they are rescaled
+		Random random = new Random(6);
+		String s1 = TestTexts.randomText(random, 4000, 2);
+		String s2 = TestTexts.randomText(random, 2000, 2);
+		double size = new MSD(s1, s2).meanAlignmentSize();
+		assertTrue("mean alignment size " + size, size > 4000 - 1e-6 && size < 6000 + 1e-6);
+	}
+
+	@Test
+	public void reusedWorkspaceMatchesNew()
+	{
+		// texts that grow and shrink, so a stale part of the buffer would show
+		Random random = new Random(7);
+		MSD reused = new MSD();
+		for (int k = 0; k < 500; k++)
+		{
+			String s1 = TestTexts.randomText(random, random.nextInt(40), 3);
+			String s2 = TestTexts.mistype(random, s1, random.nextInt(8));
+			int[][] d = TestTexts.plainMatrix(s1, s2, false);
+
+			assertSame(reused, reused.reset(s1, s2));
+			assertEquals(s1 + " / " + s2, d[s1.length()][s2.length()], reused.getMSD());
+			for (int i = 0; i <= s1.length(); i++)
+				for (int j = 0; j <= s2.length(); j++)
+					assertEquals(d[i][j], reused.getMatrixEntry(i, j));
+			assertEquals(s1 + " / " + s2, new MSD(s1, s2).meanAlignmentSize(), reused.meanAlignmentSize(), 1e-9);
+		}
+		assertSame(MSD.forThread(), MSD.forThread());
+	}
+
+	@Test
+	public void alignmentsAreTheOptimalPaths()
+	{
+		Random random = new Random(8);
+		for (int k = 0; k < 300; k++)
+		{
+			String s1 = TestTexts.randomText(random, random.nextInt(9), 2);
+			String s2 = TestTexts.randomText(random, random.nextInt(9), 2);
+			MSD msd = new MSD(s1, s2);
+
+			StringPair[] all = msd.getAlignments();
+			assertEquals(s1 + " / " + s2, TestTexts.countPaths(s1, s2, false), all.length);
+			HashSet<String> seen = new HashSet<String>();
+			for (StringPair a : all)
+			{
+				assertEquals(a.s1.length(), a.s2.length());
+				assertEquals(s1, a.s1.replace("-", ""));
+				assertEquals(s2, a.s2.replace("-", ""));
+				int errors = 0;
+				for (int i = 0; i < a.s1.length(); i++)
+					if (a.s1.charAt(i) != a.s2.charAt(i))
+						++errors;
+				assertEquals(a.s1 + " / " + a.s2, msd.getMSD(), errors);
+				assertTrue(a.s1 + " / " + a.s2, seen.add(a.s1 + "/" + a.s2));
+			}
+
+			// a limited list is the start of the full one
+			StringPair[] some = msd.getAlignments(2);
+			assertEquals(Math.min(2, all.length), some.length);
+			for (int i = 0; i < some.length; i++)
+			{
+				assertEquals(all[i].s1, some[i].s1);
+				assertEquals(all[i].s2, some[i].s2);
+			}
+		}
+	}
+
+	@Test
+	public void fewAlignmentsOfManyAreCheap()
+	{
+		// far too many optimal alignments to list them all
+		Random random = new Random(10);
+		String s1 = TestTexts.randomText(random, 300, 2);
+		String s2 = TestTexts.randomText(random, 300, 2);
+		assertEquals(5, new MSD(s1, s2).getAlignments(5).length);
+	}
+
+	@Test
+	public void boundedMatchesPlain()
+	{
+		Random random = new Random(3);
+		for (int k = 0; k < 1000; k++)
+		{
+			String s1 = TestTexts.randomText(random, random.nextInt(60), 4);
+			String s2 = TestTexts.mistype(random, s1, random.nextInt(12));
+			int d = TestTexts.plainMSD(s1, s2);
+			for (int max = 0; max <= d + 2; max++)
+				assertEquals(s1 + " / " + s2 + " within " + max, Math.min(d, max + 1),
+						MSD.getBoundedMSD(s1, s2, max));
+		}
+	}
+
+	@Test
+	public void errorRateAboveMatchesErrorRate()
+	{
+		Random random = new Random(9);
+		for (int k = 0; k < 1000; k++)
+		{
+			String s1 = TestTexts.randomText(random, random.nextInt(60), 4);
+			String s2 = TestTexts.mistype(random, s1, random.nextInt(12));
+			int percent = random.nextInt(40);
+
+			// msd / longest * 100 > percent, in integers
+			int longest = Math.max(s1.length(), s2.length());
+			boolean above = TestTexts.plainMSD(s1, s2) * 100 > percent * longest;
+			assertEquals(s1 + " / " + s2 + " above " + percent, above, MSD.isErrorRateAbove(s1, s2, percent));
+		}
+	}
+
+	@Test
+	public void wavefrontMatchesPlain()
+	{
+		// large enough to be filled in tiles (see WavefrontMSD.worthwhile())
+		Random random = new Random(4);
+		String s1 = TestTexts.randomText(random, 1500, 4);
+		String s2 = TestTexts.mistype(random, s1, 300);
+		int[][] d = TestTexts.plainMatrix(s1, s2, false);
+
+		MSD msd = new MSD(s1, s2);
+		assertEquals(d[s1.length()][s2.length()], msd.getMSD());
+		for (int i = 0; i <= s1.length(); i += 7)
+			for (int j = 0; j <= s2.length(); j += 5)
+				assertEquals(d[i][j], msd.getMatrixEntry(i, j));
+	}
+}
@@ -0,0 +1,64 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * MultiReferenceMSDTest - the best of several presented forms against scoring the transcription with each form in
+ * turn.
+ */
+public class MultiReferenceMSDTest
+{
+	@Test
+	public void matchesEachFormInTurn()
+	{
+		Random random = new Random(50);
+		for (int k = 0; k < 300; k++)
+		{
+			// forms that share prefixes, as the variants of one phrase do
+			String base = TestTexts.randomText(random, random.nextInt(20), 3);
+			String[] forms = new String[1 + random.nextInt(5)];
+			for (int f = 0; f < forms.length; f++)
+				forms[f] = random.nextInt(6) == 0 ? base : TestTexts.mistype(random, base, random.nextInt(4));
+			MultiReferenceMSD multi = random.nextBoolean() ? new MultiReferenceMSD(forms) : new MultiReferenceMSD(
+					Arrays.asList(forms));
+			assertEquals(forms.length, multi.size());
+
+			for (int j = 0; j < 10; j++)
+			{
+				String t = TestTexts.mistype(random, base, random.nextInt(5));
+
+				// the lowest error rate, ties going to the first form
+				int best = -1, bestMSD = 0, bestLength = 1;
+				for (int f = 0; f < forms.length; f++)
+				{
+					int msd = TestTexts.plainMSD(forms[f], t);
+					int length = Math.max(1, Math.max(forms[f].length(), t.length()));
+					if (best < 0 || (long)msd * bestLength < (long)bestMSD * length)
+					{
+						best = f;
+						bestMSD = msd;
+						bestLength = length;
+					}
+				}
+
+				MultiReferenceMSD.Match m = multi.match(t);
+				String what = Arrays.toString(forms) + " / " + t;
+				assertEquals(what, best, m.variant);
+				assertEquals(what, forms[best], m.presented);
+				assertEquals(what, bestMSD, m.msd);
+				assertEquals(what, new MSD(forms[best], t).getErrorRate(), m.errorRate, 1e-12);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsOneForm()
+	{
+		new MultiReferenceMSD(new String[0]);
+	}
+}
@@ -0,0 +1,81 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * PointStatsTest - the running statistics of points against the two-pass formulas, and merged streams against one
+ * stream.
+ */
+public class PointStatsTest
+{
+	@Test
+	public void matchesTwoPass()
+	{
+		// touch points spread along a slanted axis
+		Random random = new Random(100);
+		int n = 500;
+		double[] x = new double[n], y = new double[n];
+		PointStats s = new PointStats();
+		for (int i = 0; i < n; i++)
+		{
+			double u = random.nextGaussian(), v = 0.3 * random.nextGaussian();
+			x[i] = 100.0 + 0.8 * u - 0.6 * v;
+			y[i] = 200.0 + 0.6 * u + 0.8 * v;
+			s.add(x[i], y[i]);
+		}
+
+		double mx = 0.0, my = 0.0;
+		for (int i = 0; i < n; i++)
+		{
+			mx += x[i] / n;
+			my += y[i] / n;
+		}
+		double sxx = 0.0, syy = 0.0, sxy = 0.0, along = 0.0;
+		for (int i = 0; i < n; i++)
+		{
+			sxx += (x[i] - mx) * (x[i] - mx);
+			syy += (y[i] - my) * (y[i] - my);
+			sxy += (x[i] - mx) * (y[i] - my);
+			// the deviation along the direction (3, 4)
+			double d = ((x[i] - mx) * 3.0 + (y[i] - my) * 4.0) / 5.0;
+			along += d * d;
+		}
+
+		assertEquals(n, s.getCount());
+		assertEquals(mx, s.getMeanX(), 1e-9);
+		assertEquals(my, s.getMeanY(), 1e-9);
+		assertEquals(sxx / (n - 1), s.getVarianceX(), 1e-9);
+		assertEquals(syy / (n - 1), s.getVarianceY(), 1e-9);
+		assertEquals(sxy / (n - 1), s.getCovariance(), 1e-9);
+		assertEquals(along / (n - 1), s.getVariance(3.0, 4.0), 1e-9);
+		assertEquals(Double.NaN, s.getVariance(0.0, 0.0), 0.0);
+	}
+
+	@Test
+	public void mergeMatchesOneStream()
+	{
+		Random random = new Random(101);
+		PointStats one = new PointStats();
+		PointStats[] parts = { new PointStats(), new PointStats(), new PointStats() };
+		for (int i = 0; i < 300; i++)
+		{
+			double x = 10.0 * random.nextGaussian(), y = x + random.nextGaussian();
+			one.add(x, y);
+			parts[random.nextInt(2)].add(x, y); // the last part stays empty
+		}
+
+		PointStats merged = new PointStats();
+		for (PointStats p : parts)
+			merged.merge(p);
+		assertEquals(one.getCount(), merged.getCount());
+		assertEquals(one.getMeanX(), merged.getMeanX(), 1e-9);
+		assertEquals(one.getMeanY(), merged.getMeanY(), 1e-9);
+		assertEquals(one.getVarianceX(), merged.getVarianceX(), 1e-9);
+		assertEquals(one.getVarianceY(), merged.getVarianceY(), 1e-9);
+		assertEquals(one.getCovariance(), merged.getCovariance(), 1e-9);
+	}
+}
@@ -0,0 +1,87 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+/**
+ * PresentedTextTest - the scores of many transcriptions of one text against scoring each pair on its own.
+ */
+public class PresentedTextTest
+{
+	private static Vector<String> words(String s)
+	{
+		Vector<String> w = new Vector<String>();
+		for (String word : s.split(" "))
+			if (word.length() > 0)
+				w.add(word);
+		return w;
+	}
+
+	@Test
+	public void matchesEachPairOnItsOwn()
+	{
+		Random random = new Random(40);
+		for (int k = 0; k < 30; k++)
+		{
+			String p = TestTexts.randomText(random, random.nextInt(40), 4);
+			PresentedText text = new PresentedText(p);
+			assertEquals(p, text.getText());
+			assertEquals(p.length(), text.length());
+
+			for (int j = 0; j < 20; j++)
+			{
+				String t = TestTexts.mistype(random, p, random.nextInt(8));
+				String pair = p + " / " + t;
+				MSD msd = new MSD(p, t);
+				assertEquals(pair, msd.getMSD(), text.getMSD(t));
+				assertEquals(pair, msd.getErrorRate(), text.getErrorRate(t), 1e-12);
+				double size = msd.meanAlignmentSize();
+				assertEquals(pair, size, text.meanAlignmentSize(t), 1e-9 * size);
+				assertEquals(pair, msd.getErrorRateNew(), text.getErrorRateNew(t), 1e-9);
+
+				boolean transpositions = random.nextBoolean();
+				MSD2 chars = new MSD2(p, t, transpositions);
+				MSD2 m = text.getMSD2(t, transpositions);
+				assertEquals(pair, chars.getMSD(), m.getMSD());
+				assertEquals(pair, chars.getOptimalAlignmentCount(), m.getOptimalAlignmentCount());
+				assertEquals(pair, chars.getErrorRateNew(), m.getErrorRateNew(), 1e-9);
+
+				MSD2 words = new MSD2(words(p), words(t), transpositions);
+				m = text.getWordMSD2(t, transpositions);
+				assertEquals(pair, words.getMSD(), m.getMSD());
+				assertEquals(pair, words.getOptimalAlignmentCount(), m.getOptimalAlignmentCount());
+			}
+		}
+	}
+
+	@Test
+	public void scoreMatchesBatch()
+	{
+		Random random = new Random(41);
+		String p = TestTexts.randomText(random, 30, 4);
+		PresentedText text = new PresentedText(p);
+		String[] presented = new String[200];
+		String[] transcribed = new String[presented.length];
+		for (int k = 0; k < presented.length; k++)
+		{
+			presented[k] = p;
+			transcribed[k] = TestTexts.mistype(random, p, random.nextInt(6));
+		}
+
+		for (int o = 0; o < 8; o++)
+		{
+			MSDBatch.Options options = new MSDBatch.Options((o & 1) != 0, (o & 2) != 0, (o & 4) != 0);
+			MSDBatch.Result batch = MSDBatch.score(presented, transcribed, options);
+			MSDBatch.Result r = text.score(transcribed, options);
+			for (int k = 0; k < presented.length; k++)
+			{
+				assertEquals(transcribed[k], batch.msd[k], r.msd[k]);
+				assertEquals(transcribed[k], batch.errorRate[k], r.errorRate[k], 1e-9);
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * RunningStatsTest - the running statistics against the two-pass formulas, and merged streams against one stream.
+ */
+public class RunningStatsTest
+{
+	static void assertSameStats(RunningStats expected, RunningStats actual)
+	{
+		assertEquals(expected.getCount(), actual.getCount());
+		assertEquals(expected.getMean(), actual.getMean(), 1e-9 * Math.abs(expected.getMean()));
+		assertEquals(expected.getVariance(), actual.getVariance(), 1e-9 * expected.getVariance());
+		assertEquals(expected.getMin(), actual.getMin(), 0.0);
+		assertEquals(expected.getMax(), actual.getMax(), 0.0);
+	}
+
+	@Test
+	public void matchesTwoPass()
+	{
+		// a large mean and a small spread, where the sum of squares would lose the variance
+		Random random = new Random(90);
+		double[] x = new double[1000];
+		RunningStats s = new RunningStats();
+		double sum = 0.0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < x.length; i++)
+		{
+			x[i] = 1e6 + random.nextGaussian();
+			s.add(x[i]);
+			sum += x[i];
+			min = Math.min(min, x[i]);
+			max = Math.max(max, x[i]);
+		}
+		double mean = sum / x.length, ss = 0.0;
+		for (double v : x)
+			ss += (v - mean) * (v - mean);
+		double variance = ss / (x.length - 1);
+
+		assertEquals(x.length, s.getCount());
+		assertEquals(mean, s.getMean(), 1e-9);
+		assertEquals(variance, s.getVariance(), 1e-9);
+		assertEquals(Math.sqrt(variance), s.getStandardDeviation(), 1e-9);
+		assertEquals(Math.sqrt(variance / x.length), s.getStandardError(), 1e-9);
+		assertEquals(min, s.getMin(), 0.0);
+		assertEquals(max, s.getMax(), 0.0);
+	}
+
+	@Test
+	public void mergeMatchesOneStream()
+	{
+		Random random = new Random(91);
+		RunningStats one = new RunningStats();
+		RunningStats[] parts = { new RunningStats(), new RunningStats(), new RunningStats(), new RunningStats() };
+		for (int i = 0; i < 500; i++)
+		{
+			double v = 50.0 + 10.0 * random.nextGaussian();
+			one.add(v);
+			parts[random.nextInt(3)].add(v); // the last part stays empty
+		}
+
+		RunningStats merged = new RunningStats();
+		for (RunningStats p : parts)
+			merged.merge(p);
+		assertSameStats(one, merged);
+	}
+
+	@Test
+	public void fewValues()
+	{
+		RunningStats s = new RunningStats();
+		assertEquals(0, s.getCount());
+		assertEquals(Double.NaN, s.getMean(), 0.0);
+		assertEquals(Double.NaN, s.getMin(), 0.0);
+
+		s.add(3.0);
+		assertEquals(3.0, s.getMean(), 0.0);
+		assertEquals(Double.NaN, s.getVariance(), 0.0);
+		assertEquals(Double.NaN, s.getConfidenceHalfWidth(), 0.0);
+
+		// two values: one degree of freedom
+		s.add(5.0);
+		assertEquals(2.0, s.getVariance(), 1e-12);
+		assertEquals(12.706 * Math.sqrt(2.0 / 2), s.getConfidenceHalfWidth(), 1e-9);
+	}
+
+	@Test
+	public void writeThenRead() throws IOException
+	{
+		RunningStats s = new RunningStats();
+		for (int i = 1; i <= 10; i++)
+			s.add(i * i);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		s.write(new DataOutputStream(bytes));
+		assertEquals(40, bytes.size());
+		RunningStats read = RunningStats.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertSameStats(s, read);
+	}
+}
@@ -0,0 +1,117 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import java.util.Random;
+
+/**
+ * TestTexts - random texts for the tests, and the plain dynamic program that the distances are checked against.
+ * <p>
+ *
+ * The texts are over a small alphabet so that they share many characters (and so have many optimal alignments). The
+ * tests seed the generator, so a failure can be repeated.
+ */
+class TestTexts
+{
+	static final String ALPHABET = "abc ";
+
+	/**
+	 * Returns a random text of the given length over the first <code>letters</code> characters of the alphabet.
+	 */
+	static String randomText(Random random, int length, int letters)
+	{
+		char[] c = new char[length];
+		for (int i = 0; i < length; i++)
+			c[i] = ALPHABET.charAt(random.nextInt(letters));
+		return new String(c);
+	}
+
+	/**
+	 * Returns a random copy of a text with some characters substituted, inserted and deleted.
+	 */
+	static String mistype(Random random, String s, int errors)
+	{
+		StringBuilder sb = new StringBuilder(s);
+		for (int e = 0; e < errors; e++)
+		{
+			int k = random.nextInt(sb.length() + 1);
+			char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+			switch (random.nextInt(3))
+			{
+				case 0:
+					sb.insert(k, c);
+					break;
+				case 1:
+					if (k < sb.length())
+						sb.deleteCharAt(k);
+					break;
+				default:
+					if (k < sb.length())
+						sb.setCharAt(k, c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The minimum string distance, filling the whole matrix in the usual way.
+	 */
+	static int plainMSD(String s1, String s2)
+	{
+		int[][] d = plainMatrix(s1, s2, false);
+		return d[s1.length()][s2.length()];
+	}
+
+	/**
+	 * The 'D' matrix of two texts, with or without transpositions of adjacent characters.
+	 */
+	static int[][] plainMatrix(String s1, String s2, boolean transpositions)
+	{
+		int n = s1.length(), m = s2.length();
+		int[][] d = new int[n + 1][m + 1];
+		for (int i = 0; i <= n; i++)
+			d[i][0] = i;
+		for (int j = 0; j <= m; j++)
+			d[0][j] = j;
+		for (int i = 1; i <= n; i++)
+			for (int j = 1; j <= m; j++)
+			{
+				int v = Math.min(d[i - 1][j], d[i][j - 1]) + 1;
+				v = Math.min(v, d[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1));
+				if (transpositions && i >= 2 && j >= 2 && s1.charAt(i - 1) == s2.charAt(j - 2)
+						&& s1.charAt(i - 2) == s2.charAt(j - 1))
+					v = Math.min(v, d[i - 2][j - 2] + 1);
+				d[i][j] = v;
+			}
+		return d;
+	}
+
+	/**
+	 * The number of optimal paths through the plain matrix, counted from the top-left corner.
+	 */
+	static long countPaths(String s1, String s2, boolean transpositions)
+	{
+		int[][] d = plainMatrix(s1, s2, transpositions);
+		int n = s1.length(), m = s2.length();
+		long[][] count = new long[n + 1][m + 1];
+		for (int i = 0; i <= n; i++)
+			for (int j = 0; j <= m; j++)
+			{
+				if (i == 0 && j == 0)
+				{
+					count[i][j] = 1;
+					continue;
+				}
+				long c = 0;
+				if (i > 0 && j > 0 && d[i][j] == d[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1))
+					c += count[i - 1][j - 1];
+				if (j > 0 && d[i][j] == d[i][j - 1] + 1)
+					c += count[i][j - 1];
+				if (i > 0 && d[i][j] == d[i - 1][j] + 1)
+					c += count[i - 1][j];
+				if (transpositions && i >= 2 && j >= 2 && s1.charAt(i - 1) == s2.charAt(j - 2)
+						&& s1.charAt(i - 2) == s2.charAt(j - 1) && d[i][j] == d[i - 2][j - 2] + 1)
+					c += count[i - 2][j - 2];
+				count[i][j] = c;
+			}
+		return count[n][m];
+	}
+}
@@ -0,0 +1,88 @@
+package ca.yorku.cse.mack.FinalProjColorCues;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * WeightedMSDTest - the weighted distances against a plain dynamic program with the same costs.
+ */
+public class WeightedMSDTest
+{
+	/*
+	 * The weighted distance of two lists of words: a substitution costs the character MSD of the two words, divided by
+	 * the length of the longer one.
+	 */
+	private static double plainDistance(String[] p, String[] t, boolean transposes)
+	{
+		int n = p.length, m = t.length;
+		double[][] d = new double[n + 1][m + 1];
+		for (int i = 0; i <= n; i++)
+			d[i][0] = i;
+		for (int j = 0; j <= m; j++)
+			d[0][j] = j;
+		for (int i = 1; i <= n; i++)
+			for (int j = 1; j <= m; j++)
+			{
+				double cost = (double)TestTexts.plainMSD(p[i - 1], t[j - 1])
+						/ Math.max(p[i - 1].length(), t[j - 1].length());
+				double v = Math.min(d[i - 1][j], d[i][j - 1]) + 1.0;
+				v = Math.min(v, d[i - 1][j - 1] + cost);
+				if (transposes && i >= 2 && j >= 2 && p[i - 1].equals(t[j - 2]) && p[i - 2].equals(t[j - 1]))
+					v = Math.min(v, d[i - 2][j - 2] + 1.0);
+				d[i][j] = v;
+			}
+		return d[n][m];
+	}
+
+	private static String[] randomWords(Random random, String[] vocabulary)
+	{
+		String[] w = new String[random.nextInt(8)];
+		for (int i = 0; i < w.length; i++)
+			w[i] = random.nextInt(4) == 0 ? TestTexts.mistype(random, vocabulary[random.nextInt(vocabulary.length)], 1)
+					: vocabulary[random.nextInt(vocabulary.length)];
+		return w;
+	}
+
+	@Test
+	public void hierarchicalMatchesPlain()
+	{
+		String[] vocabulary = { "abc", "cab", "ba", "a c", "bbc" };
+		Random random = new Random(70);
+		MSD2.WordDistanceCache cache = new MSD2.WordDistanceCache();
+		for (int k = 0; k < 300; k++)
+		{
+			boolean transposes = random.nextBoolean();
+			String[] p = randomWords(random, vocabulary);
+			String[] t = randomWords(random, vocabulary);
+			WeightedMSD w = new WeightedMSD(new MSD2.HierarchicalWordCollection(p, t, transposes, cache));
+			assertEquals(plainDistance(p, t, transposes), w.getDistance(), 1e-9);
+		}
+	}
+
+	@Test
+	public void layoutCosts()
+	{
+		// a, b and c side by side, and z well away from them
+		KeyboardLayout layout = new KeyboardLayout("test", new String[] { "10,10", "a,0,0,1,1", "b,1,0,1,1",
+				"c,2,0,1,1", "z,6,4,1,1" });
+		KeyboardLayout.Costs costs = layout.getCosts(0.5);
+		assertEquals(0.0, costs.get('a', 'a'), 0.0);
+		assertEquals(0.5, costs.get('a', 'b'), 0.0);
+		assertEquals(0.5, costs.get('a', 'B'), 0.0);
+		assertEquals(1.0, costs.get('a', 'c'), 0.0);
+		assertEquals(1.0, costs.get('a', 'z'), 0.0);
+
+		assertEquals(0.5, distance("abc", "bbc", costs), 1e-12);
+		assertEquals(1.0, distance("abc", "zbc", costs), 1e-12);
+		assertEquals(1.0, distance("abc", "bc", costs), 1e-12);
+		assertEquals(0.0, distance("abc", "abc", costs), 1e-12);
+	}
+
+	private static double distance(String p, String t, KeyboardLayout.Costs costs)
+	{
+		return new WeightedMSD(new MSD2.LayoutCollection(p, t, false, costs)).getDistance();
+	}
+}